@@ -6,6 +6,11 @@
 #include <unordered_set>
 #include <algorithm>
 #include <fstream>
+#include <sstream>
+#include <cstdlib>
+#include <thread>
+#include <mutex>
+#include <atomic>
 #include <windows.h>
 
 using namespace std;
@@ -16,6 +21,8 @@ enum
     OPT_SOURCE,
     OPT_DEST,
     OPT_PATTERN,
+    OPT_FILES,
+    OPT_THREADS,
 };
 
 const CSimpleOpt::SOption COMMAND_LINE_OPTIONS[] = {
@@ -27,6 +34,10 @@ const CSimpleOpt::SOption COMMAND_LINE_OPTIONS[] = {
     { OPT_DEST,             "-d",               SO_REQ_SEP },
     { OPT_PATTERN,          "--pattern",        SO_REQ_SEP },
     { OPT_PATTERN,          "-p",               SO_REQ_SEP },
+    { OPT_FILES,            "--files",          SO_REQ_SEP },
+    { OPT_FILES,            "-f",               SO_REQ_SEP },
+    { OPT_THREADS,          "--threads",        SO_REQ_SEP },
+    { OPT_THREADS,          "-t",               SO_REQ_SEP },
     SO_END_OF_OPTIONS
 };
 
@@ -45,12 +56,27 @@ void showUsage(const string strApplicationName)
          << "    -d <PATH>:               The folder where the files are extracted (default: current dir)" << endl
          << "    --pattern <pattern>," << endl
 		 << "    -p <pattern>:            Casc patttern search (default: *)" <<endl
+         << "    --files <PATH>," << endl
+		 << "    -f <PATH>:               File with one CASC name per line to extract instead of searching" <<endl
+         << "    --threads <N>," << endl
+		 << "    -t <N>:                  Files extracted concurrently, 0 for one per core, at most 8 (default: 1)" <<endl
          << endl
          << "Examples:" << endl
 		 << "    D2RCascCLI -s \"D:/Diablo II Resurrected/\""
          << endl;
 }
 
+// Every worker opens the storage again and loads its own copy of the index and encoding tables
+const unsigned int MAX_THREADS = 8;
+
+// Workers share stdout, so every line goes out whole or the Java side could read half a progress event
+mutex outputLock;
+
+void WriteLine(ostream& out, const string& line) {
+	lock_guard<mutex> guard(outputLock);
+	out << line << endl;
+}
+
 bool CreateDirectoryTree(const string& path) {
     DWORD err;
     size_t pos = path.find_last_of('/');
@@ -70,11 +96,11 @@ bool CreateDirectoryTree(const string& path) {
                 return true;
             }
 
-            cerr << "Failed to create directory: " << path << ", Code: " << err << endl;
+            WriteLine(cerr, "Failed to create directory: " + path + ", Code: " + to_string(err));
             return false;
         }
         else {
-            cout << "Directory created: " << path << endl;
+            WriteLine(cout, "Directory created: " + path);
         }
     }
 
@@ -143,6 +169,93 @@ bool DeleteDirectory(const string& dirPath) {
     return true;
 }
 
+// Extracts one CASC file below strDestDir, dropping the "data:" storage prefix from the folder.
+// Returns the number of bytes written, or -1 when the file could not be extracted.
+long long ExtractCascFile(HANDLE hStorage, const string& strFullPath, const string& strDestDir, char* buffer, DWORD bufferSize) {
+	size_t pos = strFullPath.find_last_of('/');
+	string ref = strFullPath.substr(0, pos);
+	if (ref.rfind("data:", 0) == 0) {
+		ref = ref.substr(5);
+	}
+
+	string extractPath = strDestDir + "/" + ref;
+	string filename = strFullPath.substr(pos + 1);
+	WriteLine(cout, "Extracting File: " + filename + ", Extracting Location: " + extractPath);
+	CreateDirectoryTree(extractPath);
+
+	HANDLE cascFile;
+	string fileWb = extractPath + "/" + filename;
+	if (!CascOpenFile(hStorage, strFullPath.c_str(), CASC_LOCALE_ALL, 0, &cascFile))
+	{
+		WriteLine(cerr, "Failed to open file for extraction: " + strFullPath);
+		return -1;
+	}
+
+	long long written = -1;
+	DWORD read;
+	FILE* dest = fopen(fileWb.c_str(), "wb");
+	if (dest)
+	{
+		WriteLine(cout, "Extracting file to: " + fileWb);
+		written = 0;
+		do {
+			if (!CascReadFile(cascFile, buffer, bufferSize, &read)) read = 0;
+			fwrite(buffer, read, 1, dest);
+			written += read;
+		} while (read > 0);
+
+		fclose(dest);
+	}
+	else
+	{
+		WriteLine(cerr, "Failed to extract the file '" + strFullPath + "' to " + fileWb);
+	}
+
+	CascCloseFile(cascFile);
+	return written;
+}
+
+// Reads a list in the list-file-d2r.txt format, names without the "data:" prefix get it added
+bool ReadFileList(const string& path, vector<string>& files) {
+	ifstream inFile(path);
+	if (!inFile.is_open()) {
+		return false;
+	}
+
+	string line;
+	while (getline(inFile, line)) {
+		if (!line.empty() && line.back() == '\r') line.pop_back();
+		if (line.empty()) continue;
+		for (auto& c : line) if (c == '\\') c = '/';
+		if (line.rfind("data:", 0) != 0) line = "data:" + line;
+		files.push_back(line);
+	}
+	return true;
+}
+
+// Each worker claims the next pending file until none are left. The storage handles are not shared: CascLib
+// opens data files lazily and reads through a shared seek position, so every worker brings its own.
+void ExtractPending(const vector<HANDLE>& storages, const vector<string>& pending, const string& strDestDir,
+		vector<long long>& written) {
+	atomic<size_t> next(0);
+	auto worker = [&](HANDLE hStorage) {
+		vector<char> buffer(1000000);
+		for (size_t i = next++; i < pending.size(); i = next++) {
+			long long bytes = ExtractCascFile(hStorage, pending[i], strDestDir, buffer.data(), (DWORD)buffer.size());
+			written[i] = bytes;
+			ostringstream event;
+			if (bytes < 0) event << "@@D2R FAIL " << i + 1 << " " << pending[i];
+			else event << "@@D2R FILE " << i + 1 << " " << bytes << " " << pending[i];
+			WriteLine(cout, event.str());
+		}
+	};
+
+	vector<thread> threads;
+	for (size_t w = 1; w < storages.size(); w++) threads.emplace_back(worker, storages[w]);
+	worker(storages[0]);
+	for (auto& t : threads) t.join();
+}
+
 int main(int argc, char** argv)
 {
 	HANDLE hStorage;
@@ -151,7 +264,8 @@ int main(int argc, char** argv)
 	string strSourceDir = "";
 	string strDestDir = ".";
 	string strPattern = "*";
-	char buffer[1000000];
+	string strFileList = "";
+	unsigned int threadCount = 1;
 
 	// Parse the command-line parameters
 	cout << "Parsing command-line arguments..." << endl;
@@ -180,6 +294,19 @@ int main(int argc, char** argv)
 					strPattern = args.OptionArg();
 					cout << "Casc Pattern: " << strPattern << endl;
 					break;
+
+				case OPT_FILES:
+					strFileList = args.OptionArg();
+					cout << "File list: " << strFileList << endl;
+					break;
+
+				case OPT_THREADS:
+					threadCount = (unsigned int)strtoul(args.OptionArg(), NULL, 10);
+					if (threadCount == 0) threadCount = thread::hardware_concurrency();
+					if (threadCount == 0) threadCount = 1;
+					if (threadCount > MAX_THREADS) threadCount = MAX_THREADS;
+					cout << "Threads: " << threadCount << endl;
+					break;
 			}
 		}
 		else
@@ -200,6 +327,13 @@ int main(int argc, char** argv)
 	for (auto& c : strListFile) if (c == '\\') c = '/';
 	for (auto& c : strDestDir) if (c == '\\') c = '/';
 
+	// Read before the destination is wiped, the list may live inside it
+	vector<string> requested;
+	if (!strFileList.empty() && !ReadFileList(strFileList, requested)) {
+		cerr << "Failed to read file list: " << strFileList << endl;
+		return -1;
+	}
+
 	cout << "Opening CASC storage at '" << strSourceDir << "'..." << endl;
 	if (!CascOpenStorage(strSourceDir.c_str(), 0, &hStorage))
 	{
@@ -223,82 +357,85 @@ int main(int argc, char** argv)
 	DeleteDirectory(strDestDir);
 
 	cout << "Generating new extraction file reference: " << strListFile << endl;
-	CASC_FIND_DATA findData{};
     vector<string> results;
+    vector<string> pending;
     unordered_set<string> seen;
-    HANDLE cascHandle = CascFindFirstFile(hStorage, strPattern.c_str(), &findData, NULL);
-	
-	do {
-		if (!cascHandle) {
-			err = GetLastError();
-			cerr << "Casc find failed with error: " << err << endl;
-			return err;
-		}
 
-		string strFullPath = findData.szFileName;
-		for (auto& c : strFullPath) if (c == '\\') c = '/';
-		
-		if (strFullPath.size() > 4 &&
-			strFullPath.substr(strFullPath.size() - 4) == ".txt" &&
-			strFullPath.find("data/global") != string::npos &&
-			strFullPath.find("data/global/excel/base/") == string::npos)
-		{
+	if (!strFileList.empty()) {
+		// Named files are opened directly, so the storage is never enumerated
+		for (const auto& strFullPath : requested) {
 			if (seen.insert(strFullPath).second) {
 				cout << "Found: " << strFullPath << endl;
-				results.push_back(strFullPath);
-				
-				size_t pos = strFullPath.find_last_of('/');
-				string ref = strFullPath.substr(0, pos);
-				if (ref.rfind("data:", 0) == 0) {
-					ref = ref.substr(5);
-				}
-				
-				string extractPath = strDestDir + "/" + ref;
-				string filename = strFullPath.substr(pos + 1);
-				cout << "Extracting File: " << filename << ", Extracting Location: " << extractPath << endl;
-				CreateDirectoryTree(extractPath);
-				
-				HANDLE cascFile;
-				string fileWb = extractPath + "/" + filename;
-				if (CascOpenFile(hStorage, strFullPath.c_str(), CASC_LOCALE_ALL, 0, &cascFile))
-				{
-					DWORD read;
-					FILE* dest = fopen(fileWb.c_str(), "wb");
-					if (dest)
-					{
-						std::cout << "Extracting file to: " << fileWb << endl;
-						do {
-							if (CascReadFile(cascFile, &buffer, sizeof(buffer), &read))
-								fwrite(&buffer, read, 1, dest);
-						} while (read > 0);
-
-						fclose(dest);
-					}
-					else
-					{
-						cerr << "Failed to extract the file '" << strFullPath << "' to " << fileWb << endl;
-					}
-
-					CascCloseFile(cascFile);
-				}
-				else
-				{
-					cerr << "Failed to open file for extraction: " << strFullPath << endl;
+				pending.push_back(strFullPath);
+			}
+		}
+	}
+	else {
+		CASC_FIND_DATA findData{};
+		HANDLE cascHandle = CascFindFirstFile(hStorage, strPattern.c_str(), &findData, NULL);
+
+		do {
+			if (!cascHandle) {
+				err = GetLastError();
+				cerr << "Casc find failed with error: " << err << endl;
+				return err;
+			}
+
+			string strFullPath = findData.szFileName;
+			for (auto& c : strFullPath) if (c == '\\') c = '/';
+
+			if (strFullPath.size() > 4 &&
+				strFullPath.substr(strFullPath.size() - 4) == ".txt" &&
+				strFullPath.find("data/global") != string::npos &&
+				strFullPath.find("data/global/excel/base/") == string::npos)
+			{
+				if (seen.insert(strFullPath).second) {
+					cout << "Found: " << strFullPath << endl;
+					pending.push_back(strFullPath);
 				}
 			}
+		} while(CascFindNextFile(cascHandle, &findData));
+
+		if (!CascFindClose(cascHandle)) {
+			err = GetLastError();
+			cerr << "CascFindClose failed with error: " << err << endl;
+			return err;
+		}
+		else {
+			cout << "Casc find closed" << endl;
 		}
-		
-		
-	} while(CascFindNextFile(cascHandle, &findData));
+	}
 
-	if (!CascFindClose(cascHandle)) {
-		err = GetLastError();
-		cerr << "CascFindClose failed with error: " << err << endl;
-		return err;
+	// Progress protocol read by D2RExtractionManager, every other stdout line is free-form log text:
+	//   @@D2R TOTAL <files>                  once, before the first file is extracted
+	//   @@D2R FILE <n> <bytes> <name>        after file n (1-based) was written
+	//   @@D2R FAIL <n> <name>                when file n could not be extracted
+	//   @@D2R DONE <files> <bytes>           after the last file
+	//   With --threads above 1, FILE and FAIL events arrive in completion order rather than by n
+	vector<HANDLE> storages{ hStorage };
+	size_t workers = threadCount < pending.size() ? threadCount : pending.size();
+	while (storages.size() < workers) {
+		HANDLE hWorkerStorage;
+		if (!CascOpenStorage(strSourceDir.c_str(), 0, &hWorkerStorage)) {
+			cerr << "Failed to open storage for worker " << storages.size() << ", Error: " << GetLastError() << endl;
+			break;
+		}
+		storages.push_back(hWorkerStorage);
 	}
-	else {
-		cout << "Casc find closed" << endl;
+
+	cout << "@@D2R TOTAL " << pending.size() << endl;
+	vector<long long> written(pending.size(), -1);
+	ExtractPending(storages, pending, strDestDir, written);
+	for (size_t w = 1; w < storages.size(); w++) CascCloseStorage(storages[w]);
+
+	// The file reference keeps the pending order no matter which worker finished first
+	long long totalBytes = 0;
+	for (size_t i = 0; i < pending.size(); i++) {
+		if (written[i] < 0) continue;
+		results.push_back(pending[i]);
+		totalBytes += written[i];
 	}
+	cout << "@@D2R DONE " << results.size() << " " << totalBytes << endl;
 	
 	ofstream outFile(strListFile);
 	if (!outFile.is_open()) {
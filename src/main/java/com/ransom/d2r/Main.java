@@ -1,22 +1,47 @@
 package com.ransom.d2r;
 
+import com.ransom.d2r.objects.BuildDiff;
+import com.ransom.d2r.objects.ComparisonCache;
 import com.ransom.d2r.objects.ExtractionRunner;
 import com.ransom.d2r.objects.ParsedErrors;
+import com.ransom.d2r.objects.ReferenceSnapshot;
 import com.ransom.d2r.objects.ReportType;
 import com.ransom.d2r.util.*;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
 public class Main {
     public static void main(String[] args) throws Exception {
-        final String extractedDir = ExtractionUtil.generate("D:\\Diablo II Resurrected", ".", new ExtractionRunner());
-        final String globalExcelDir = extractedDir + "\\data\\global\\excel";
+        final String d2rDir = "D:\\Diablo II Resurrected";
+        final String extractedDir = ExtractionUtil.generate(d2rDir, ".", new ExtractionRunner());
         final String outputDir = ".\\generated";
 
+        // Build diff util test
+        final Path previousBuild = ExtractionUtil.findPreviousBuild(Paths.get(extractedDir));
+        if (previousBuild != null) {
+            String oldName = previousBuild.getFileName().toString();
+            String newName = Paths.get(extractedDir).getFileName().toString();
+            List<BuildDiff> diffs = BuildDiffUtil.diffBuilds(previousBuild.toString(), extractedDir, Runtime.getRuntime().availableProcessors());
+            System.out.println(BuildDiffUtil.generate(outputDir, diffs, oldName, newName, "patch-notes-" + oldName + "-" + newName));
+        }
+
+        // The generators read only a few tables, so those are pulled straight from the storage into their own folder
+        final Set<String> generatorFiles = new LinkedHashSet<>();
+        generatorFiles.addAll(ExperienceUtil.REQUIRED_FILES);
+        generatorFiles.addAll(SkillsUtil.REQUIRED_FILES);
+        generatorFiles.addAll(LevelsUtil.REQUIRED_FILES);
+        generatorFiles.addAll(MonLvlUtil.REQUIRED_FILES);
+        final Path generatorDir = ExtractionUtil.extractInProcess(d2rDir, Paths.get("extracted", "generators"), generatorFiles);
+        final String globalExcelDir = generatorDir.resolve("data").resolve("global").resolve("excel").toString();
+
         // Experience util test
         ExperienceUtil.generate(
             globalExcelDir,
@@ -64,14 +89,22 @@ public class Main {
                 "C:\\D2RMM 1.8.0\\mods\\Eastern_Sun_Resurrected"
         );
 
+        // The reference comes straight from the storage, the build is already indexed so only the reads remain
+        final ReferenceSnapshot reference = ScannerUtil.loadReferenceSnapshot(
+                ExtractionUtil.generateInMemory(d2rDir, ".", Runtime.getRuntime().availableProcessors()));
+        final int scanThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / modDirs.size());
         final List<CompletableFuture<Void>> futures = new ArrayList<>();
         modDirs.forEach(modDir ->
                 futures.add(CompletableFuture.runAsync(() -> {
                     try {
-                        List<ParsedErrors> errors = ScannerUtil.scanForComparisons(extractedDir, modDir);
                         String fileName = modDir.replace("\\", "/");
                         fileName = fileName.substring(fileName.lastIndexOf("/") + 1);
                         if (fileName.contains(".")) fileName = fileName.substring(0, fileName.indexOf("."));
+                        ComparisonCache cache = new ComparisonCache(Paths.get(outputDir, ".cache", fileName));
+                        List<ParsedErrors> errors;
+                        try (JsonlDiffWriter jsonl = new JsonlDiffWriter(Paths.get(outputDir, fileName + ".jsonl"))) {
+                            errors = ScannerUtil.scanForComparisons(reference, modDir, scanThreads, cache, jsonl);
+                        }
                         System.out.println(ReportUtil.generate(".", errors, ReportType.HTML, fileName));
                         System.out.println(ReportUtil.generate(outputDir, errors, ReportType.TEXT, fileName));
                     } catch (IOException e) {
@@ -80,5 +113,8 @@ public class Main {
                 }))
         );
         CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        // Watch util test
+//        WatchUtil.watch(reference, modDirs.getFirst(), outputDir, "Reimagined", 500);
     }
 }
@@ -0,0 +1,89 @@
+package com.ransom.d2r.casc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// Decodes BLTE containers, the block format every file in the data archives is stored in
+public class BlteDecoder {
+    private static final int MAGIC = 0x424C5445;  // "BLTE"
+
+    public static ByteBuffer decode(ByteBuffer blte) throws IOException {
+        ByteBuffer in = blte.slice();
+        if (in.remaining() < 8 || in.getInt(0) != MAGIC) throw new IOException("Not a BLTE container");
+        int headerSize = in.getInt(4);
+
+        // Without a chunk table the whole remainder is a single chunk of unknown decoded size
+        if (headerSize == 0) {
+            return decodeChunk(in.slice(8, in.remaining() - 8), -1);
+        }
+
+        int flags = in.get(8) & 0xFF;
+        int chunkCount = ((in.get(9) & 0xFF) << 16) | ((in.get(10) & 0xFF) << 8) | (in.get(11) & 0xFF);
+        if (flags != 0x0F || chunkCount == 0) throw new IOException("Unsupported BLTE chunk table (flags " + flags + ")");
+
+        int[] encodedSizes = new int[chunkCount];
+        int[] decodedSizes = new int[chunkCount];
+        long total = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            int entry = 12 + i * 24;
+            encodedSizes[i] = in.getInt(entry);
+            decodedSizes[i] = in.getInt(entry + 4);
+            total += decodedSizes[i];
+        }
+        if (total > Integer.MAX_VALUE) throw new IOException("BLTE content too large: " + total);
+
+        ByteBuffer out = ByteBuffer.allocate((int) total);
+        int pos = headerSize;
+        for (int i = 0; i < chunkCount; i++) {
+            if (pos + encodedSizes[i] > in.limit()) throw new IOException("Truncated BLTE chunk " + i);
+            ByteBuffer chunk = decodeChunk(in.slice(pos, encodedSizes[i]), decodedSizes[i]);
+            if (chunk.remaining() != decodedSizes[i]) throw new IOException("BLTE chunk " + i + " decoded to the wrong size");
+            out.put(chunk);
+            pos += encodedSizes[i];
+        }
+        return out.flip();
+    }
+
+    private static ByteBuffer decodeChunk(ByteBuffer chunk, int decodedSize) throws IOException {
+        if (!chunk.hasRemaining()) return ByteBuffer.allocate(0);
+        char mode = (char) chunk.get(0);
+        ByteBuffer body = chunk.slice(1, chunk.remaining() - 1);
+        return switch (mode) {
+            case 'N' -> body;
+            case 'Z' -> inflate(body, decodedSize);
+            case 'F' -> decode(body);
+            case 'E' -> throw new IOException("Encrypted BLTE chunk, no key is available");
+            default -> throw new IOException("Unsupported BLTE chunk mode '" + mode + "'");
+        };
+    }
+
+    private static ByteBuffer inflate(ByteBuffer body, int decodedSize) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(body);
+            if (decodedSize >= 0) {
+                ByteBuffer out = ByteBuffer.allocate(decodedSize);
+                while (out.hasRemaining() && !inflater.finished()) {
+                    if (inflater.inflate(out) == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                }
+                return out.flip();
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[65536];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                out.write(buffer, 0, n);
+            }
+            return ByteBuffer.wrap(out.toByteArray());
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt zlib data in BLTE chunk", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
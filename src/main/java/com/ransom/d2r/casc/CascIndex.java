@@ -0,0 +1,111 @@
+package com.ransom.d2r.casc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// The local Data/data/*.idx files, mapping truncated encoding keys to a location in one of the data.NNN archives
+public class CascIndex {
+    private static final int BUCKETS = 16;
+
+    public static class Entry {
+        public final int archive;
+        public final long offset;
+        public final int size;
+
+        Entry(int archive, long offset, int size) {
+            this.archive = archive;
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
+    private final Map<CascKey, Entry> entries;
+    private final int keySize;
+
+    private CascIndex(Map<CascKey, Entry> entries, int keySize) {
+        this.entries = entries;
+        this.keySize = keySize;
+    }
+
+    // Each bucket may have several generations on disk, named <bucket:2 hex><version:8 hex>.idx, only the newest is live
+    public static CascIndex load(Path dataDir) throws IOException {
+        Path[] newest = new Path[BUCKETS];
+        long[] versions = new long[BUCKETS];
+        try (Stream<Path> stream = Files.list(dataDir)) {
+            for (Path path : (Iterable<Path>) stream::iterator) {
+                String name = path.getFileName().toString().toLowerCase();
+                if (name.length() != 14 || !name.endsWith(".idx")) continue;
+                int bucket;
+                long version;
+                try {
+                    bucket = Integer.parseInt(name.substring(0, 2), 16);
+                    version = Long.parseLong(name.substring(2, 10), 16);
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (bucket < BUCKETS && (newest[bucket] == null || version > versions[bucket])) {
+                    newest[bucket] = path;
+                    versions[bucket] = version;
+                }
+            }
+        }
+
+        Map<CascKey, Entry> entries = new HashMap<>();
+        int keySize = 0;
+        for (Path path : newest) {
+            if (path != null) keySize = parse(path, entries);
+        }
+        if (keySize == 0) throw new IOException("No index files found in " + dataDir);
+        return new CascIndex(entries, keySize);
+    }
+
+    private static int parse(Path path, Map<CascKey, Entry> entries) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        if (in.limit() < 0x18) throw new IOException("Truncated index file " + path);
+        int headerSize = in.getInt(0);
+        int version = in.getShort(8) & 0xFFFF;
+        if (version != 7) throw new IOException("Unsupported index version " + version + " in " + path);
+        int sizeBytes = in.get(12) & 0xFF;
+        int offsetBytes = in.get(13) & 0xFF;
+        int keyBytes = in.get(14) & 0xFF;
+        int offsetBits = in.get(15) & 0xFF;
+
+        // The entry block starts on the next 16 byte boundary after the header, behind its own size and hash
+        int block = (8 + headerSize + 0x0F) & ~0x0F;
+        int entriesSize = in.getInt(block);
+        int entrySize = keyBytes + offsetBytes + sizeBytes;
+        int end = Math.min(in.limit(), block + 8 + entriesSize);
+        long offsetMask = (1L << offsetBits) - 1;
+        for (int pos = block + 8; pos + entrySize <= end; pos += entrySize) {
+            long location = 0;
+            for (int i = 0; i < offsetBytes; i++) {
+                location = (location << 8) | (in.get(pos + keyBytes + i) & 0xFF);
+            }
+            long size = 0;
+            for (int i = sizeBytes - 1; i >= 0; i--) {
+                size = (size << 8) | (in.get(pos + keyBytes + offsetBytes + i) & 0xFF);
+            }
+            entries.putIfAbsent(CascKey.of(in, pos, keyBytes),
+                    new Entry((int) (location >>> offsetBits), location & offsetMask, (int) size));
+        }
+        return keyBytes;
+    }
+
+    public Entry find(CascKey ekey) {
+        return entries.get(ekey.prefix(keySize));
+    }
+
+    public int keySize() {
+        return keySize;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,49 @@
+package com.ransom.d2r.casc;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+// Content or encoding key, local indexes and TVFS only keep the first 9 bytes of an encoding key
+public final class CascKey {
+    private final byte[] bytes;
+    private final int hash;
+
+    private CascKey(byte[] bytes) {
+        this.bytes = bytes;
+        this.hash = Arrays.hashCode(bytes);
+    }
+
+    public static CascKey of(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new CascKey(bytes);
+    }
+
+    public static CascKey fromHex(String hex) {
+        return new CascKey(HexFormat.of().parseHex(hex));
+    }
+
+    public CascKey prefix(int length) {
+        return length >= bytes.length ? this : new CascKey(Arrays.copyOf(bytes, length));
+    }
+
+    public int length() {
+        return bytes.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CascKey other && Arrays.equals(bytes, other.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return HexFormat.of().formatHex(bytes);
+    }
+}
@@ -0,0 +1,219 @@
+package com.ransom.d2r.casc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Reads files straight out of a local D2R install (.build.info, Data/config, Data/data) without the CascLib CLI
+public class CascStorage implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(CascStorage.class);
+    private static final int ARCHIVE_HEADER_SIZE = 0x1E;
+
+    private final Path installDir;
+    private final Path dataDir;
+    private final CascIndex index;
+    private final Map<String, String> buildConfig;
+    private final Map<String, CascKey[]> files = new LinkedHashMap<>();
+    private final Map<Integer, FileChannel> archives = new ConcurrentHashMap<>();
+    private volatile EncodingTable encoding;
+
+    private CascStorage(Path installDir, CascIndex index, Map<String, String> buildConfig) {
+        this.installDir = installDir;
+        this.dataDir = installDir.resolve("Data").resolve("data");
+        this.index = index;
+        this.buildConfig = buildConfig;
+    }
+
+    public static CascStorage open(Path installDir) throws IOException {
+        String buildKey = readBuildKey(installDir.resolve(".build.info"));
+        Path configDir = installDir.resolve("Data").resolve("config");
+        Map<String, String> buildConfig = readConfig(configDir
+                .resolve(buildKey.substring(0, 2)).resolve(buildKey.substring(2, 4)).resolve(buildKey));
+
+        CascStorage storage = new CascStorage(installDir, CascIndex.load(installDir.resolve("Data").resolve("data")), buildConfig);
+        try {
+            storage.loadRoot();
+        } catch (IOException | RuntimeException e) {
+            storage.close();
+            throw e;
+        }
+        log.info("Opened CASC storage '{}' with {} index entries and {} files", installDir, storage.index.size(), storage.files.size());
+        return storage;
+    }
+
+    // .build.info is a '|' separated table whose header cells look like "Build Key!HEX:16", the active row wins
+    private static String readBuildKey(Path buildInfo) throws IOException {
+        List<String> lines = Files.readAllLines(buildInfo, StandardCharsets.UTF_8);
+        if (lines.isEmpty()) throw new IOException("Empty " + buildInfo);
+        String[] headers = lines.getFirst().split("\\|", -1);
+        int keyColumn = -1;
+        int activeColumn = -1;
+        for (int i = 0; i < headers.length; i++) {
+            String name = headers[i].split("!", 2)[0].trim();
+            if (name.equalsIgnoreCase("Build Key")) keyColumn = i;
+            if (name.equalsIgnoreCase("Active")) activeColumn = i;
+        }
+        if (keyColumn < 0) throw new IOException("No 'Build Key' column in " + buildInfo);
+
+        String fallback = null;
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.isBlank() || line.startsWith("#")) continue;
+            String[] cells = line.split("\\|", -1);
+            if (cells.length <= keyColumn || cells[keyColumn].isBlank()) continue;
+            if (activeColumn < 0 || (cells.length > activeColumn && cells[activeColumn].trim().equals("1"))) {
+                return cells[keyColumn].trim().toLowerCase();
+            }
+            if (fallback == null) fallback = cells[keyColumn].trim().toLowerCase();
+        }
+        if (fallback == null) throw new IOException("No build key in " + buildInfo);
+        return fallback;
+    }
+
+    private static Map<String, String> readConfig(Path path) throws IOException {
+        Map<String, String> config = new HashMap<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            int eq = line.indexOf('=');
+            if (line.startsWith("#") || eq < 0) continue;
+            config.put(line.substring(0, eq).trim(), line.substring(eq + 1).trim());
+        }
+        return config;
+    }
+
+    // Config values are "<ckey> [<ekey>]", the encoding key is looked up when only the content key is given
+    private CascKey configEncodingKey(String name) throws IOException {
+        String value = buildConfig.get(name);
+        if (value == null || value.isBlank()) return null;
+        String[] keys = value.split("\\s+");
+        if (keys.length > 1) return CascKey.fromHex(keys[1]);
+        CascKey ekey = encoding().get(CascKey.fromHex(keys[0]));
+        if (ekey == null) throw new IOException("No encoding entry for " + name + " " + keys[0]);
+        return ekey;
+    }
+
+    private void loadRoot() throws IOException {
+        CascKey root = configEncodingKey("vfs-root");
+        if (root == null) throw new IOException("Build config has no 'vfs-root', only TVFS storages are supported");
+
+        // Nested manifests (vfs-1, vfs-2, ...) show up as files in their parent and are joined with ':', as in "data:data/global/..."
+        Set<CascKey> nested = new HashSet<>();
+        for (int i = 1; buildConfig.containsKey("vfs-" + i); i++) {
+            nested.add(configEncodingKey("vfs-" + i).prefix(index.keySize()));
+        }
+        loadManifest("", root, nested);
+    }
+
+    private void loadManifest(String prefix, CascKey ekey, Set<CascKey> nested) throws IOException {
+        for (Map.Entry<String, CascKey[]> file : TvfsRoot.parse(readEncoded(ekey)).entrySet()) {
+            CascKey[] spans = file.getValue();
+            if (spans.length == 1 && nested.contains(spans[0].prefix(index.keySize()))) {
+                loadManifest(prefix + file.getKey() + ":", spans[0], nested);
+            } else {
+                files.put(prefix + file.getKey(), spans);
+            }
+        }
+    }
+
+    private EncodingTable encoding() throws IOException {
+        if (encoding == null) {
+            synchronized (this) {
+                if (encoding == null) {
+                    String value = buildConfig.get("encoding");
+                    String[] keys = value == null ? new String[0] : value.split("\\s+");
+                    if (keys.length < 2) throw new IOException("Build config has no encoding key");
+                    encoding = EncodingTable.parse(readEncoded(CascKey.fromHex(keys[1])));
+                }
+            }
+        }
+        return encoding;
+    }
+
+    public Path getInstallDir() {
+        return installDir;
+    }
+
+    public List<String> list() {
+        return new ArrayList<>(files.keySet());
+    }
+
+    public boolean contains(String name) {
+        return files.containsKey(name);
+    }
+
+    // Decoded contents, a heap buffer positioned at 0 that can go straight into TsvBuffer.wrap
+    public ByteBuffer read(String name) throws IOException {
+        CascKey[] spans = files.get(name);
+        if (spans == null) throw new IOException("File not found in CASC storage: " + name);
+        if (spans.length == 1) return readEncoded(spans[0]);
+
+        List<ByteBuffer> parts = new ArrayList<>(spans.length);
+        int total = 0;
+        for (CascKey span : spans) {
+            ByteBuffer part = readEncoded(span);
+            parts.add(part);
+            total = Math.addExact(total, part.remaining());
+        }
+        ByteBuffer joined = ByteBuffer.allocate(total);
+        for (ByteBuffer part : parts) joined.put(part);
+        return joined.flip();
+    }
+
+    public ByteBuffer readEncoded(CascKey ekey) throws IOException {
+        CascIndex.Entry entry = index.find(ekey);
+        if (entry == null) throw new IOException("Encoding key not in local index: " + ekey);
+        if (entry.size < ARCHIVE_HEADER_SIZE) throw new IOException("Corrupt index entry for " + ekey);
+
+        // Each stored file is prefixed by a 30 byte header (reversed key, size, flags, checksums) ahead of the BLTE data
+        ByteBuffer stored = ByteBuffer.allocate(entry.size - ARCHIVE_HEADER_SIZE);
+        FileChannel channel = archive(entry.archive);
+        long position = entry.offset + ARCHIVE_HEADER_SIZE;
+        while (stored.hasRemaining()) {
+            if (channel.read(stored, position + stored.position()) < 0) {
+                throw new IOException("Unexpected end of data." + String.format("%03d", entry.archive) + " reading " + ekey);
+            }
+        }
+        return BlteDecoder.decode(stored.flip());
+    }
+
+    private FileChannel archive(int archive) throws IOException {
+        FileChannel channel = archives.get(archive);
+        if (channel != null) return channel;
+        synchronized (archives) {
+            channel = archives.get(archive);
+            if (channel == null) {
+                channel = FileChannel.open(dataDir.resolve(String.format("data.%03d", archive)), StandardOpenOption.READ);
+                archives.put(archive, channel);
+            }
+            return channel;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (FileChannel channel : archives.values()) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        archives.clear();
+        if (failure != null) throw failure;
+    }
+}
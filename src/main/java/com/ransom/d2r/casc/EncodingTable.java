@@ -0,0 +1,52 @@
+package com.ransom.d2r.casc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+// Maps content keys (hash of the decoded file) to encoding keys (hash of the stored BLTE), from the decoded encoding file
+public class EncodingTable {
+    private final Map<CascKey, CascKey> ekeys;
+
+    private EncodingTable(Map<CascKey, CascKey> ekeys) {
+        this.ekeys = ekeys;
+    }
+
+    public static EncodingTable parse(ByteBuffer data) throws IOException {
+        ByteBuffer in = data.slice();
+        if (in.remaining() < 22 || in.get(0) != 'E' || in.get(1) != 'N') throw new IOException("Not an encoding file");
+        int ckeySize = in.get(3) & 0xFF;
+        int ekeySize = in.get(4) & 0xFF;
+        int ckeyPageSize = (in.getShort(5) & 0xFFFF) * 1024;
+        int ckeyPageCount = in.getInt(9);
+        int especSize = in.getInt(18);
+
+        // The page index (first key and md5 per page) is only needed for binary searching, every page is read anyway
+        int pos = 22 + especSize + ckeyPageCount * (ckeySize + 16);
+        Map<CascKey, CascKey> ekeys = new HashMap<>();
+        for (int page = 0; page < ckeyPageCount; page++) {
+            int pageEnd = pos + ckeyPageSize;
+            if (pageEnd > in.limit()) throw new IOException("Truncated encoding page " + page);
+
+            int entry = pos;
+            while (entry + 6 + ckeySize <= pageEnd) {
+                int keyCount = in.get(entry) & 0xFF;
+                if (keyCount == 0) break;  // the rest of the page is padding
+                int ckey = entry + 6;
+                ekeys.put(CascKey.of(in, ckey, ckeySize), CascKey.of(in, ckey + ckeySize, ekeySize));
+                entry = ckey + ckeySize + keyCount * ekeySize;
+            }
+            pos = pageEnd;
+        }
+        return new EncodingTable(ekeys);
+    }
+
+    public CascKey get(CascKey ckey) {
+        return ekeys.get(ckey);
+    }
+
+    public int size() {
+        return ekeys.size();
+    }
+}
@@ -0,0 +1,93 @@
+package com.ransom.d2r.casc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// The TVFS manifest D2R uses as its root file: a prefix-compressed path tree whose leaves point at file spans
+public class TvfsRoot {
+    private static final int MAGIC = 0x54564653;  // "TVFS"
+    private static final int FOLDER_NODE = 0x80000000;
+
+    private final ByteBuffer in;
+    private final int keySize;
+    private final int vfsOffset;
+    private final int cftOffset;
+    private final int cftOffsetBytes;
+    private final Map<String, CascKey[]> files = new LinkedHashMap<>();
+
+    private TvfsRoot(ByteBuffer in) throws IOException {
+        this.in = in;
+        if (in.remaining() < 38 || in.getInt(0) != MAGIC || in.get(4) != 1) throw new IOException("Not a TVFS manifest");
+        this.keySize = in.get(6) & 0xFF;
+        this.vfsOffset = in.getInt(20);
+        this.cftOffset = in.getInt(28);
+        int cftSize = in.getInt(32);
+        this.cftOffsetBytes = cftSize > 0xFFFFFF ? 4 : cftSize > 0xFFFF ? 3 : cftSize > 0xFF ? 2 : 1;
+    }
+
+    // Maps each path to the encoding keys of its spans, in content order
+    public static Map<String, CascKey[]> parse(ByteBuffer data) throws IOException {
+        TvfsRoot root = new TvfsRoot(data.slice());
+        int pathOffset = root.in.getInt(12);
+        int pathSize = root.in.getInt(16);
+        root.parseFolder(new StringBuilder(), pathOffset, pathOffset + pathSize);
+        return root.files;
+    }
+
+    private void parseFolder(StringBuilder path, int pos, int end) throws IOException {
+        int folderLength = path.length();
+        while (pos < end) {
+            // A node is an optional 0x00 separator, a length prefixed name fragment, another optional separator
+            // and, for leaves and folders, 0xFF followed by a big endian value
+            if (in.get(pos) == 0) {
+                path.append('/');
+                pos++;
+            }
+            if (pos < end && in.get(pos) != (byte) 0xFF) {
+                int length = in.get(pos) & 0xFF;
+                if (pos + 1 + length > end) throw new IOException("Truncated TVFS path table");
+                byte[] name = new byte[length];
+                in.get(pos + 1, name);
+                path.append(new String(name, StandardCharsets.UTF_8));
+                pos += 1 + length;
+            }
+            if (pos < end && in.get(pos) == 0) {
+                path.append('/');
+                pos++;
+            }
+            if (pos >= end || in.get(pos) != (byte) 0xFF) continue;  // fragment shared by the next nodes
+
+            int value = in.getInt(pos + 1);
+            pos += 5;
+            if ((value & FOLDER_NODE) != 0) {
+                int folderSize = (value & ~FOLDER_NODE) - 4;
+                parseFolder(path, pos, pos + folderSize);
+                pos += folderSize;
+            } else {
+                files.put(path.toString(), readSpans(vfsOffset + value));
+            }
+            path.setLength(folderLength);
+        }
+    }
+
+    private CascKey[] readSpans(int pos) throws IOException {
+        int spanCount = in.get(pos) & 0xFF;
+        if (spanCount == 0 || spanCount > 0xE0) throw new IOException("Unsupported TVFS span count " + spanCount);
+        CascKey[] spans = new CascKey[spanCount];
+        pos++;
+        for (int i = 0; i < spanCount; i++) {
+            // Content offset and length (4 bytes each) are implied by the order of the spans
+            pos += 8;
+            int cft = 0;
+            for (int b = 0; b < cftOffsetBytes; b++) {
+                cft = (cft << 8) | (in.get(pos + b) & 0xFF);
+            }
+            pos += cftOffsetBytes;
+            spans[i] = CascKey.of(in, cftOffset + cft, keySize);
+        }
+        return spans;
+    }
+}
@@ -0,0 +1,88 @@
+package com.ransom.d2r.extractor;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+
+// Lines may arrive from any thread, the text area is only touched once per frame on the EDT
+public class BoundedLogSink implements Closeable {
+    private static final int FRAME_MILLIS = 33;
+
+    private final JTextArea logArea;
+    private final int maxLines;
+    private final Path spillPath;
+    private final BufferedWriter spill;
+    // Lines not yet shown, the oldest are dropped once more than maxLines pile up between frames
+    private final ArrayDeque<String> pending = new ArrayDeque<>();
+    private final Timer timer;
+
+    public BoundedLogSink(JTextArea logArea, int maxLines, Path spillPath) throws IOException {
+        this.logArea = logArea;
+        this.maxLines = maxLines;
+        this.spillPath = spillPath;
+        this.spill = Files.newBufferedWriter(spillPath, StandardCharsets.UTF_8);
+        this.timer = new Timer(FRAME_MILLIS, e -> flushToArea());
+        this.timer.start();
+    }
+
+    public Path getSpillPath() {
+        return spillPath;
+    }
+
+    // The full text always goes to the spill file, only the tail is kept for the text area
+    public void append(String text) {
+        String[] lines = text.split("\n", -1);
+        synchronized (spill) {
+            try {
+                for (String line : lines) {
+                    spill.write(line);
+                    spill.newLine();
+                }
+            } catch (IOException ignored) {
+            }
+        }
+
+        synchronized (pending) {
+            for (String line : lines) {
+                pending.addLast(line);
+                if (pending.size() > maxLines) pending.removeFirst();
+            }
+        }
+    }
+
+    private void flushToArea() {
+        StringBuilder chunk = new StringBuilder();
+        synchronized (pending) {
+            if (pending.isEmpty()) return;
+            for (String line : pending) chunk.append(line).append('\n');
+            pending.clear();
+        }
+
+        logArea.append(chunk.toString());
+
+        // Every line ends in '\n', so the area reports one empty line past the last real one
+        int excess = logArea.getLineCount() - 1 - maxLines;
+        if (excess > 0) {
+            try {
+                logArea.replaceRange("", 0, logArea.getLineStartOffset(excess));
+            } catch (BadLocationException ignored) {
+            }
+        }
+    }
+
+    // Must be called on the EDT, shows whatever is still pending before the spill file is closed
+    @Override
+    public void close() throws IOException {
+        timer.stop();
+        flushToArea();
+        synchronized (spill) {
+            spill.close();
+        }
+    }
+}
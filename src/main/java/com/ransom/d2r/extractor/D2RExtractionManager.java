@@ -2,6 +2,7 @@ package com.ransom.d2r.extractor;
 
 import java.io.*;
 import java.nio.file.*;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class D2RExtractionManager {
@@ -10,6 +11,8 @@ public class D2RExtractionManager {
     private final File excelCacheDir;
     private final File cascTool;
 
+    private static final long PROGRESS_INTERVAL_NANOS = 100_000_000L;
+
     private Process runningProcess;
 
     public D2RExtractionManager(String d2rPath, String cacheDir, String cascToolPath) {
@@ -26,9 +29,13 @@ public class D2RExtractionManager {
 
     public void extractExcelWithProgress(ProgressCallback callback,
                                          AtomicBoolean cancelled) throws Exception {
-        excelCacheDir.mkdirs();
+        extract(List.of("-p", "*"), callback, cancelled);
+    }
 
-        int totalFiles = estimateTotalExcelFiles();
+    private void extract(List<String> selection,
+                         ProgressCallback callback,
+                         AtomicBoolean cancelled) throws Exception {
+        excelCacheDir.mkdirs();
 
         ProcessBuilder pb = new ProcessBuilder();
         pb.command(cascTool.getAbsolutePath());
@@ -36,8 +43,7 @@ public class D2RExtractionManager {
         pb.command().add(d2rDir.getAbsolutePath());
         pb.command().add("-d");
         pb.command().add(excelCacheDir.getAbsolutePath());
-        pb.command().add("-p");
-        pb.command().add("*");
+        pb.command().addAll(selection);
         pb.redirectErrorStream(true);
         runningProcess = pb.start();
 
@@ -45,7 +51,9 @@ public class D2RExtractionManager {
                 new InputStreamReader(runningProcess.getInputStream())
         );
 
-        int extractedCount = 0;
+        ExtractionProgress progress = new ExtractionProgress();
+        StringBuilder pendingLog = new StringBuilder();
+        long lastFlush = System.nanoTime();
         String line;
 
         while ((line = reader.readLine()) != null) {
@@ -54,15 +62,19 @@ public class D2RExtractionManager {
                 throw new RuntimeException("Extraction cancelled by user.");
             }
 
-            if (line.toLowerCase().endsWith(".txt")) {
-                extractedCount++;
+            if (!progress.accept(line)) {
+                if (!pendingLog.isEmpty()) pendingLog.append('\n');
+                pendingLog.append(line);
             }
 
-            int percent = totalFiles == 0 ? 0 :
-                    (int)((extractedCount / (double) totalFiles) * 100);
-
-            callback.onProgress(Math.min(percent, 100), line);
+            // The CLI prints several lines per file, so the callback only sees one update per interval
+            long now = System.nanoTime();
+            if (now - lastFlush >= PROGRESS_INTERVAL_NANOS) {
+                flush(callback, progress, pendingLog);
+                lastFlush = now;
+            }
         }
+        flush(callback, progress, pendingLog);
 
         int exit = runningProcess.waitFor();
 
@@ -73,8 +85,10 @@ public class D2RExtractionManager {
         storeVersion();
     }
 
-    private int estimateTotalExcelFiles() {
-        return 350;
+    private void flush(ProgressCallback callback, ExtractionProgress progress, StringBuilder pendingLog) {
+        callback.onFiles(progress.extractedFiles, progress.totalFiles, progress.extractedBytes);
+        callback.onProgress(progress.percent(), pendingLog.toString());
+        pendingLog.setLength(0);
     }
 
     private void storeVersion() throws IOException {
@@ -85,6 +99,9 @@ public class D2RExtractionManager {
     }
 
     public interface ProgressCallback {
-        void onProgress(int percent, String message);  // Callback interface for progress updates
+        void onProgress(int percent, String message);  // Callback interface for progress updates, message may hold several lines or none
+
+        default void onFiles(int extractedFiles, int totalFiles, long extractedBytes) {
+        }
     }
 }
@@ -178,9 +178,6 @@ public class D2RExtractionUI {
                     return;
                 }
 
-                startButton.setEnabled(false);
-                cancelButton.setEnabled(true);
-
                 D2RExtractionManager manager =
                         new D2RExtractionManager(
                                 pathField.getText(),
@@ -188,8 +185,9 @@ public class D2RExtractionUI {
                                 cascTool.getAbsolutePath()
                         );
 
+                // Built before the buttons flip, if the log file cannot be created Start stays usable
                 D2RExtractionWorker worker =
-                        new D2RExtractionWorker(
+                        D2RExtractionWorker.create(
                                 manager,
                                 progressBar,
                                 logArea,
@@ -197,6 +195,8 @@ public class D2RExtractionUI {
                                 cancelButton
                         );
 
+                startButton.setEnabled(false);
+                cancelButton.setEnabled(true);
                 cancelButton.addActionListener(ev -> worker.requestCancel());
                 worker.execute();
             } catch (Exception ex) {
@@ -3,31 +3,54 @@ package com.ransom.d2r.extractor;
 import com.ransom.d2r.extractor.D2RExtractionManager;
 
 import javax.swing.*;
-import java.util.List;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.concurrent.atomic.AtomicBoolean;
 
-public class D2RExtractionWorker extends SwingWorker<Void, String> {
+public class D2RExtractionWorker extends SwingWorker<Void, Void> {
+    // A full extraction logs thousands of lines, the text area only keeps this many and the rest is in the spill file
+    private static final int MAX_LOG_LINES = 2000;
 
     private final D2RExtractionManager manager;
     private final JProgressBar progressBar;
-    private final JTextArea logArea;
+    private final BoundedLogSink logSink;
     private final JButton cancelButton;
     private final JButton startButton;
 
     private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private volatile String progressText;
 
-    public D2RExtractionWorker(D2RExtractionManager manager,
-                               JProgressBar progressBar,
-                               JTextArea logArea,
-                               JButton startButton,
-                               JButton cancelButton) {
+    private D2RExtractionWorker(D2RExtractionManager manager,
+                                JProgressBar progressBar,
+                                BoundedLogSink logSink,
+                                JButton startButton,
+                                JButton cancelButton) {
         this.manager = manager;
         this.progressBar = progressBar;
-        this.logArea = logArea;
+        this.logSink = logSink;
         this.startButton = startButton;
         this.cancelButton = cancelButton;
     }
 
+    // The listener is added once the worker is fully constructed, so 'this' never escapes the constructor
+    public static D2RExtractionWorker create(D2RExtractionManager manager,
+                                             JProgressBar progressBar,
+                                             JTextArea logArea,
+                                             JButton startButton,
+                                             JButton cancelButton) throws IOException {
+        // Not inside the cache dir, the CLI wipes its destination before extracting
+        BoundedLogSink logSink = new BoundedLogSink(logArea, MAX_LOG_LINES, Files.createTempFile("d2r-extraction", ".log"));
+        D2RExtractionWorker worker = new D2RExtractionWorker(manager, progressBar, logSink, startButton, cancelButton);
+
+        // Progress changes reach the bar as property events on the EDT, log text goes through the sink
+        worker.addPropertyChangeListener(evt -> {
+            if (!"progress".equals(evt.getPropertyName())) return;
+            progressBar.setValue(worker.getProgress());
+            if (worker.progressText != null) progressBar.setString(worker.progressText);
+        });
+        return worker;
+    }
+
     public void requestCancel() {
         cancelled.set(true);
     }
@@ -35,27 +58,36 @@ public class D2RExtractionWorker extends SwingWorker<Void, String> {
     @Override
     protected Void doInBackground() throws Exception {
 
-        manager.extractExcelWithProgress((percent, message) -> {
-            publish(message);
-            setProgress(percent);
-            System.out.println("Progress: " + getProgress());
+        manager.extractExcelWithProgress(new D2RExtractionManager.ProgressCallback() {
+            @Override
+            public void onProgress(int percent, String message) {
+                if (!message.isEmpty()) logSink.append(message);
+                setProgress(percent);
+            }
+
+            @Override
+            public void onFiles(int extractedFiles, int totalFiles, long extractedBytes) {
+                if (totalFiles > 0) {
+                    progressText = String.format("%d / %d files (%.1f MB)", extractedFiles, totalFiles, extractedBytes / 1048576.0);
+                }
+            }
         }, cancelled);
 
         return null;
     }
 
-    @Override
-    protected void process(List<String> chunks) {
-        for (String msg : chunks) {
-            logArea.append(msg + "\n");
-        }
-        progressBar.setValue(getProgress());
-    }
-
     @Override
     protected void done() {
         cancelButton.setEnabled(false);
         startButton.setEnabled(true);
+        progressBar.setValue(getProgress());
+        if (progressText != null) progressBar.setString(progressText);
+
+        logSink.append("Full log written to: " + logSink.getSpillPath().toAbsolutePath());
+        try {
+            logSink.close();
+        } catch (IOException ignored) {
+        }
 
         try {
             get();
@@ -0,0 +1,55 @@
+package com.ransom.d2r.extractor;
+
+// Running totals read from the "@@D2R" progress lines the CLI prints, see the protocol notes in src/cpp/main.cpp
+public class ExtractionProgress {
+    private static final String PREFIX = "@@D2R ";
+    // Older CLI builds print no protocol, progress then falls back to counting log lines against this guess
+    private static final int LEGACY_ESTIMATE = 350;
+
+    public int totalFiles;
+    public int extractedFiles;
+    public int failedFiles;
+    public long extractedBytes;
+    public boolean done;
+    public String lastFile;
+    private int legacyLines;
+
+    // Returns false for ordinary log lines so the caller can show them
+    public boolean accept(String line) {
+        if (!line.startsWith(PREFIX)) {
+            if (line.toLowerCase().endsWith(".txt")) legacyLines++;
+            return false;
+        }
+
+        // Names come last and may contain spaces, so each event is split only as far as its fixed fields
+        String[] event = line.substring(PREFIX.length()).split(" ", 2);
+        String[] fields = event.length > 1 ? event[1].split(" ", event[0].equals("FILE") ? 3 : 2) : new String[0];
+        try {
+            switch (event[0]) {
+                case "TOTAL" -> totalFiles = Integer.parseInt(fields[0]);
+                case "FILE" -> {
+                    extractedBytes += Long.parseLong(fields[1]);
+                    extractedFiles++;
+                    lastFile = fields.length > 2 ? fields[2] : null;
+                }
+                case "FAIL" -> {
+                    failedFiles++;
+                    lastFile = fields.length > 1 ? fields[1] : null;
+                }
+                case "DONE" -> done = true;
+                default -> {
+                    return false;
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return false;
+        }
+        return true;
+    }
+
+    public int percent() {
+        if (done) return 100;
+        if (totalFiles > 0) return (extractedFiles + failedFiles) * 100 / totalFiles;
+        return Math.min(99, legacyLines * 100 / LEGACY_ESTIMATE);
+    }
+}
@@ -0,0 +1,26 @@
+package com.ransom.d2r.objects;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BuildDiff {
+    public final String file;
+    public final Status status;
+    // Headers of the older build, RowDiff column indexes point into these
+    public final List<String> headers;
+    public final List<String> addedHeaders = new ArrayList<>();
+    public final List<String> removedHeaders = new ArrayList<>();
+    public final List<String> addedEntries = new ArrayList<>();
+    public final List<String> removedEntries = new ArrayList<>();
+    public final List<RowDiff> changedEntries = new ArrayList<>();
+
+    public BuildDiff(String file, Status status, List<String> headers) {
+        this.file = file;
+        this.status = status;
+        this.headers = headers;
+    }
+
+    public enum Status {
+        ADDED, REMOVED, CHANGED
+    }
+}
@@ -0,0 +1,127 @@
+package com.ransom.d2r.objects;
+
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ColumnarTable {
+    public final String[] headers;
+    private final int rowCount;
+    private final Column[] columns;
+    private final int[] rowLengths;
+
+    private ColumnarTable(String[] headers, int rowCount, Column[] columns, int[] rowLengths) {
+        this.headers = headers;
+        this.rowCount = rowCount;
+        this.columns = columns;
+        this.rowLengths = rowLengths;
+    }
+
+    public static ColumnarTable of(String[] headers, List<String[]> rows) {
+        int width = headers.length;
+        boolean ragged = false;
+        for (String[] row : rows) {
+            if (row.length != headers.length) ragged = true;
+            width = Math.max(width, row.length);
+        }
+
+        int[] rowLengths = null;
+        if (ragged) {
+            rowLengths = new int[rows.size()];
+            for (int i = 0; i < rows.size(); i++) rowLengths[i] = rows.get(i).length;
+        }
+
+        Column[] columns = new Column[width];
+        for (int col = 0; col < width; col++) {
+            columns[col] = Column.encode(rows, col);
+        }
+        return new ColumnarTable(headers, rows.size(), columns, rowLengths);
+    }
+
+    public static ColumnarTable of(FileInfo fileInfo) {
+        return of(fileInfo.headers, fileInfo.rows);
+    }
+
+    private int rowLength(int row) {
+        return rowLengths == null ? columns.length : rowLengths[row];
+    }
+
+    // Every call returns a fresh array, the cell strings themselves are shared with the column dictionaries
+    public String[] row(int row) {
+        String[] values = new String[rowLength(row)];
+        for (int col = 0; col < values.length; col++) {
+            values[col] = columns[col].get(row);
+        }
+        return values;
+    }
+
+    public List<String[]> rows() {
+        return new AbstractList<>() {
+            @Override
+            public String[] get(int index) {
+                return row(index);
+            }
+
+            @Override
+            public int size() {
+                return rowCount;
+            }
+        };
+    }
+
+    public FileInfo toFileInfo() {
+        return new FileInfo(headers, rows());
+    }
+
+    private static class Column {
+        private final String[] dictionary;
+        private final byte[] byteCodes;
+        private final short[] shortCodes;
+        private final int[] intCodes;
+
+        private Column(String[] dictionary, byte[] byteCodes, short[] shortCodes, int[] intCodes) {
+            this.dictionary = dictionary;
+            this.byteCodes = byteCodes;
+            this.shortCodes = shortCodes;
+            this.intCodes = intCodes;
+        }
+
+        // Codes are stored in the narrowest array that can address the column's dictionary
+        private static Column encode(List<String[]> rows, int col) {
+            Map<String, Integer> lookup = new HashMap<>();
+            int[] codes = new int[rows.size()];
+            for (int i = 0; i < codes.length; i++) {
+                String[] row = rows.get(i);
+                String value = col < row.length ? row[col] : "";
+                Integer code = lookup.get(value);
+                if (code == null) {
+                    code = lookup.size();
+                    lookup.put(value, code);
+                }
+                codes[i] = code;
+            }
+
+            String[] dictionary = new String[lookup.size()];
+            lookup.forEach((value, code) -> dictionary[code] = value);
+
+            if (dictionary.length <= 0x100) {
+                byte[] byteCodes = new byte[codes.length];
+                for (int i = 0; i < codes.length; i++) byteCodes[i] = (byte) codes[i];
+                return new Column(dictionary, byteCodes, null, null);
+            }
+            if (dictionary.length <= 0x10000) {
+                short[] shortCodes = new short[codes.length];
+                for (int i = 0; i < codes.length; i++) shortCodes[i] = (short) codes[i];
+                return new Column(dictionary, null, shortCodes, null);
+            }
+            return new Column(dictionary, null, null, codes);
+        }
+
+        private String get(int row) {
+            if (byteCodes != null) return dictionary[byteCodes[row] & 0xFF];
+            if (shortCodes != null) return dictionary[shortCodes[row] & 0xFFFF];
+            return dictionary[intCodes[row]];
+        }
+    }
+}
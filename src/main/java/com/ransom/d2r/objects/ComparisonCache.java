@@ -0,0 +1,100 @@
+package com.ransom.d2r.objects;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+public class ComparisonCache {
+    // Bump whenever the comparison logic or the ParsedErrors layout changes so old entries are never reused
+    private static final String FORMAT_VERSION = "3";
+    private static final String ENTRY_SUFFIX = ".bin";
+
+    public final Path cacheDir;
+    private final Map<Path, String> fileHashes = new ConcurrentHashMap<>();
+    private final Set<String> usedKeys = ConcurrentHashMap.newKeySet();
+
+    public ComparisonCache(Path cacheDir) throws IOException {
+        this.cacheDir = cacheDir;
+        Files.createDirectories(cacheDir);
+    }
+
+    // Reference files on disk are hashed once per cache instance
+    public String fileHash(Path extFile) throws IOException {
+        String extHash = fileHashes.get(extFile);
+        if (extHash == null) {
+            extHash = hash(ByteBuffer.wrap(Files.readAllBytes(extFile)));
+            fileHashes.put(extFile, extHash);
+        }
+        return extHash;
+    }
+
+    // extHash comes from fileHash or ReferenceSnapshot.hash, mod files are hashed on every call
+    public String key(String txtFile, String extHash, Path modFile) throws IOException {
+        String modHash = hash(ByteBuffer.wrap(Files.readAllBytes(modFile)));
+        String key = hash(ByteBuffer.wrap((FORMAT_VERSION + "\n" + txtFile + "\n" + extHash + "\n" + modHash).getBytes(StandardCharsets.UTF_8)));
+        usedKeys.add(key);
+        return key;
+    }
+
+    // Returns null on a miss or when the entry cannot be read back
+    public ParsedErrors get(String key) {
+        Path entry = cacheDir.resolve(key + ENTRY_SUFFIX);
+        if (!Files.exists(entry)) return null;
+        try (InputStream in = Files.newInputStream(entry);
+             ObjectInputStream ois = new ObjectInputStream(in)) {
+            return (ParsedErrors) ois.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            return null;
+        }
+    }
+
+    public void put(String key, ParsedErrors parsedErrors) throws IOException {
+        Path entry = cacheDir.resolve(key + ENTRY_SUFFIX);
+        Path temp = Files.createTempFile(cacheDir, key, ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp);
+                 ObjectOutputStream oos = new ObjectOutputStream(out)) {
+                oos.writeObject(parsedErrors);
+            }
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Drops every entry that was not keyed since this cache was opened
+    public void prune() throws IOException {
+        try (Stream<Path> entries = Files.list(cacheDir)) {
+            for (Path entry : entries.toList()) {
+                String name = entry.getFileName().toString();
+                if (name.endsWith(ENTRY_SUFFIX) && !usedKeys.contains(name.substring(0, name.length() - ENTRY_SUFFIX.length()))) {
+                    Files.deleteIfExists(entry);
+                }
+            }
+        }
+    }
+
+    public static String hash(ByteBuffer contents) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(contents.duplicate());
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.ransom.d2r.objects;
+
+import java.io.IOException;
+
+public interface ComparisonListener {
+    // Called once per compared file, in the same order as the returned ParsedErrors list
+    void onFile(ParsedErrors parsedFile) throws IOException;
+}
@@ -0,0 +1,27 @@
+package com.ransom.d2r.objects;
+
+public enum ErrorCategory {
+    MISSING_HEADERS("Missing Headers"),
+    UNKNOWN_HEADERS("Unknown Headers"),
+    MISMATCHED_HEADERS("Mismatched Headers"),
+    MISSING_ENTRIES("Missing Entries"),
+    MISMATCHED_ENTRIES("Mismatched Entries"),
+    DUPLICATE_ENTRIES("Duplicate Entries");
+
+    public final String label;
+
+    ErrorCategory(String label) {
+        this.label = label;
+    }
+
+    public int size(ParsedErrors errors) {
+        return switch (this) {
+            case MISSING_HEADERS -> errors.missingHeaders.size();
+            case UNKNOWN_HEADERS -> errors.unknownHeaders.size();
+            case MISMATCHED_HEADERS -> errors.mismatchedHeaders.size();
+            case MISSING_ENTRIES -> errors.missingEntries.size();
+            case MISMATCHED_ENTRIES -> errors.mismatchedEntries.size();
+            case DUPLICATE_ENTRIES -> errors.duplicateEntries.size();
+        };
+    }
+}
@@ -0,0 +1,55 @@
+package com.ransom.d2r.objects;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Extraction target that never touches disk, files are keyed by their '/' separated path below the extraction root
+public class ExtractedFiles {
+    public final String rootDir;
+    private final Map<String, byte[]> files = new LinkedHashMap<>();
+    private long totalBytes;
+
+    public ExtractedFiles(String rootDir) {
+        this.rootDir = rootDir;
+    }
+
+    public synchronized void put(String name, ByteBuffer contents) {
+        byte[] bytes = new byte[contents.remaining()];
+        contents.duplicate().get(bytes);
+        byte[] previous = files.put(name, bytes);
+        totalBytes += bytes.length - (previous == null ? 0 : previous.length);
+    }
+
+    // The buffer wraps the stored bytes so TsvBuffer can parse them in place, callers must not write to it
+    public synchronized ByteBuffer get(String name) {
+        byte[] bytes = files.get(name);
+        return bytes == null ? null : ByteBuffer.wrap(bytes);
+    }
+
+    public synchronized InputStream open(String name) {
+        byte[] bytes = files.get(name);
+        return bytes == null ? null : new ByteArrayInputStream(bytes);
+    }
+
+    public synchronized boolean contains(String name) {
+        return files.containsKey(name);
+    }
+
+    public synchronized List<String> names() {
+        return Collections.unmodifiableList(new ArrayList<>(files.keySet()));
+    }
+
+    public synchronized int size() {
+        return files.size();
+    }
+
+    public synchronized long totalBytes() {
+        return totalBytes;
+    }
+}
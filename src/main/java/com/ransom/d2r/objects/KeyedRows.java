@@ -0,0 +1,33 @@
+package com.ransom.d2r.objects;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class KeyedRows {
+    public final int keyColumn;
+    private final Map<String, List<String[]>> index;
+
+    public KeyedRows(List<String[]> rows, int keyColumn, int firstRow) {
+        this.keyColumn = keyColumn;
+        this.index = new HashMap<>(Math.max(16, (rows.size() - firstRow) * 4 / 3 + 1));
+        for (int i = firstRow; i < rows.size(); i++) {
+            String[] row = rows.get(i);
+            String key = keyColumn < row.length ? row[keyColumn] : "";
+            index.computeIfAbsent(key, k -> new ArrayList<>(1)).add(row);
+        }
+    }
+
+    // Rows sharing a key keep their file order, so the n-th occurrence in one file pairs with the n-th in the other
+    public String[] get(String key, int occurrence) {
+        List<String[]> matches = index.get(key);
+        if (matches == null || occurrence >= matches.size()) return null;
+        return matches.get(occurrence);
+    }
+
+    public int count(String key) {
+        List<String[]> matches = index.get(key);
+        return matches == null ? 0 : matches.size();
+    }
+}
@@ -1,23 +1,39 @@
 package com.ransom.d2r.objects;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 
-public class ParsedErrors {
+public class ParsedErrors implements Serializable {
+    private static final long serialVersionUID = 3L;
+
     public final String file;
     public final boolean exists;
-    public final List<String> extHeaders;
-    public final List<String> missingHeaders = new ArrayList<>();
-    public final List<String> unknownHeaders = new ArrayList<>();
+    // Concrete collection types throughout, so every field is serializable as declared
+    public final ArrayList<String> extHeaders;
+    public final ArrayList<String> missingHeaders = new ArrayList<>();
+    public final ArrayList<String> unknownHeaders = new ArrayList<>();
     public final LinkedHashMap<String, String> mismatchedHeaders = new LinkedHashMap<>();
-    public final List<String> missingEntries = new ArrayList<>();
-    public final LinkedHashMap<String, String> mismatchedEntries = new LinkedHashMap<>();
+    public final ArrayList<String> missingEntries = new ArrayList<>();
+    public final ArrayList<RowDiff> mismatchedEntries = new ArrayList<>();
+    public final ArrayList<String> duplicateEntries = new ArrayList<>();
 
     public ParsedErrors(String file, boolean exists, List<String> extHeaders) {
         this.file = file;
         this.exists = exists;
-        this.extHeaders = extHeaders;
+        this.extHeaders = extHeaders == null ? null : new ArrayList<>(extHeaders);
+    }
+
+    // Column 0 (the key) followed by every column that differs in at least one mismatched entry
+    public int[] mismatchedColumns() {
+        BitSet columns = new BitSet();
+        columns.set(0);
+        for (RowDiff diff : mismatchedEntries) {
+            for (int col : diff.columns) columns.set(col);
+        }
+        return columns.stream().toArray();
     }
 
     @Override
@@ -58,13 +74,30 @@ public class ParsedErrors {
 
         if (!mismatchedEntries.isEmpty()) {
             eb.append("\n\t\tMismatched Entries: ");
+            mismatchedEntries.forEach(diff -> {
+                eb.append("\n\t\t\tKey: '");
+                eb.append(diff.key);
+                eb.append("'");
+                for (int i = 0; i < diff.columns.length; i++) {
+                    int col = diff.columns[i];
+                    eb.append("\n\t\t\t\t");
+                    eb.append(col < extHeaders.size() ? extHeaders.get(col) : "#" + col);
+                    eb.append(": '");
+                    eb.append(diff.extValues[i]);
+                    eb.append("' -> '");
+                    eb.append(diff.modValues[i]);
+                    eb.append("'");
+                }
+            });
+        }
+
+        if (!duplicateEntries.isEmpty()) {
+            eb.append("\n\t\tDuplicate Entries: ");
             eb.append("\n\t\t\tHeaders: '");
             eb.append(String.join("\t", extHeaders));
             eb.append("'");
-            mismatchedEntries.forEach((k, v) -> {
-                eb.append("\n\t\t\tExtracted Row: '");
-                eb.append(k);
-                eb.append("'\n\t\t\tMod Row: '");
+            duplicateEntries.forEach(v -> {
+                eb.append("\n\t\t\tRow: '");
                 eb.append(v);
                 eb.append("'");
             });
@@ -0,0 +1,26 @@
+package com.ransom.d2r.objects;
+
+import java.util.Collections;
+import java.util.Map;
+
+public class ReferenceSnapshot {
+    public final String rootDir;
+    private final Map<String, ColumnarTable> files;
+    private final Map<String, String> hashes;
+
+    // Files are keyed by their '/' separated path relative to rootDir and must not be modified once loaded.
+    // hashes holds the ComparisonCache.hash of each file's contents as loaded, rootDir may not hold the files at all.
+    public ReferenceSnapshot(String rootDir, Map<String, ColumnarTable> files, Map<String, String> hashes) {
+        this.rootDir = rootDir;
+        this.files = Collections.unmodifiableMap(files);
+        this.hashes = Collections.unmodifiableMap(hashes);
+    }
+
+    public ColumnarTable get(String txtFile) {
+        return files.get(txtFile);
+    }
+
+    public String hash(String txtFile) {
+        return hashes.get(txtFile);
+    }
+}
@@ -9,7 +9,8 @@ public class ReportInfo {
         "\n\tUnknown Headers - Information on if any of the mod headers (columns) do not exist in the D2R extracted file" +
         "\n\tMismatched Headers - Information about order of the extracted headers vs the mod headers if they do not match" +
         "\n\tMissing Entries - Information on whether there are any row entries in the D2R files that are not in the mod file, matching based on first column value" +
-        "\n\tMismatched Entries - Information on whether there are any row entries in the D2R files that have different values than in the mod file (Green - D2R row, Red - Mod row)";
+        "\n\tMismatched Entries - Information on whether there are any row entries in the D2R files that have different values than in the mod file, showing only the changed columns (Green - D2R row, Red - Mod row)" +
+        "\n\tDuplicate Entries - Information on mod rows whose first column value repeats more often than in the D2R file, so they cannot be paired with a D2R row";
 
     public static final String RESULTS = "Results:";
 }
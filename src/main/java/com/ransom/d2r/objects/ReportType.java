@@ -2,5 +2,7 @@ package com.ransom.d2r.objects;
 
 public enum ReportType {
     HTML,
-    TEXT
+    TEXT,
+    PAGED,
+    JSONL
 }
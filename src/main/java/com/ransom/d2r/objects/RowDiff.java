@@ -0,0 +1,32 @@
+package com.ransom.d2r.objects;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+public class RowDiff implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public final String key;
+    public final int[] columns;
+    public final String[] extValues;
+    public final String[] modValues;
+
+    // columns holds the indexes of the differing cells in ascending order, extValues/modValues are parallel to it
+    public RowDiff(String key, int[] columns, String[] extValues, String[] modValues) {
+        this.key = key;
+        this.columns = columns;
+        this.extValues = extValues;
+        this.modValues = modValues;
+    }
+
+    // Returns null when the column is not one of the differing cells
+    public String extValue(int col) {
+        int i = Arrays.binarySearch(columns, col);
+        return i < 0 ? null : extValues[i];
+    }
+
+    public String modValue(int col) {
+        int i = Arrays.binarySearch(columns, col);
+        return i < 0 ? null : modValues[i];
+    }
+}
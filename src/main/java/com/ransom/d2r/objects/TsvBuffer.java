@@ -0,0 +1,147 @@
+package com.ransom.d2r.objects;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class TsvBuffer {
+    private final ByteBuffer buffer;
+    private final byte[] array;
+    private final int[] rowStarts;
+    private final int[] rowEnds;
+    private final int rowCount;
+
+    private TsvBuffer(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.array = buffer.hasArray() && buffer.arrayOffset() == 0 ? buffer.array() : null;
+
+        // Line breaks follow BufferedReader.readLine: '\n', '\r' or "\r\n", no empty row after a trailing break
+        int limit = buffer.limit();
+        int[] starts = new int[64];
+        int[] ends = new int[64];
+        int rows = 0;
+        int start = 0;
+        int pos = 0;
+        while (pos < limit) {
+            byte b = byteAt(pos);
+            if (b != '\n' && b != '\r') {
+                pos++;
+                continue;
+            }
+
+            if (rows == starts.length) {
+                starts = Arrays.copyOf(starts, rows * 2);
+                ends = Arrays.copyOf(ends, rows * 2);
+            }
+            starts[rows] = start;
+            ends[rows] = pos;
+            rows++;
+
+            pos++;
+            if (b == '\r' && pos < limit && byteAt(pos) == '\n') pos++;
+            start = pos;
+        }
+
+        if (start < limit) {
+            if (rows == starts.length) {
+                starts = Arrays.copyOf(starts, rows + 1);
+                ends = Arrays.copyOf(ends, rows + 1);
+            }
+            starts[rows] = start;
+            ends[rows] = limit;
+            rows++;
+        }
+
+        this.rowStarts = starts;
+        this.rowEnds = ends;
+        this.rowCount = rows;
+    }
+
+    public static TsvBuffer read(Path path) throws IOException {
+        return new TsvBuffer(ByteBuffer.wrap(Files.readAllBytes(path)));
+    }
+
+    // For contents already in memory, e.g. decoded straight out of CASC storage, the buffer's own position is left alone
+    public static TsvBuffer wrap(ByteBuffer buffer) {
+        return new TsvBuffer(buffer.slice());
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public int cellCount(int row) {
+        int count = 1;
+        for (int pos = rowStarts[row]; pos < rowEnds[row]; pos++) {
+            if (byteAt(pos) == '\t') count++;
+        }
+        return count;
+    }
+
+    // Returns the buffer offset the cell starts at, or -1 if the row has fewer cells
+    public int cellStart(int row, int col) {
+        int pos = rowStarts[row];
+        int end = rowEnds[row];
+        for (int i = 0; i < col; i++) {
+            while (pos < end && byteAt(pos) != '\t') pos++;
+            if (pos == end) return -1;
+            pos++;
+        }
+        return pos;
+    }
+
+    public int cellEnd(int row, int cellStart) {
+        int pos = cellStart;
+        int end = rowEnds[row];
+        while (pos < end && byteAt(pos) != '\t') pos++;
+        return pos;
+    }
+
+    public String cell(int row, int col) {
+        int start = cellStart(row, col);
+        if (start < 0) return null;
+        return decode(start, cellEnd(row, start));
+    }
+
+    public String[] row(int row) {
+        String[] cells = new String[cellCount(row)];
+        int start = rowStarts[row];
+        int end = rowEnds[row];
+        int col = 0;
+        for (int pos = start; pos < end; pos++) {
+            if (byteAt(pos) == '\t') {
+                cells[col++] = decode(start, pos);
+                start = pos + 1;
+            }
+        }
+        cells[col] = decode(start, end);
+        return cells;
+    }
+
+    public int columnIndex(String header, boolean ignoreCase) {
+        if (rowCount == 0) return -1;
+        int cells = cellCount(0);
+        for (int col = 0; col < cells; col++) {
+            String value = cell(0, col);
+            if (ignoreCase ? header.equalsIgnoreCase(value) : header.equals(value)) return col;
+        }
+        return -1;
+    }
+
+    private byte byteAt(int pos) {
+        return array != null ? array[pos] : buffer.get(pos);
+    }
+
+    private String decode(int start, int end) {
+        if (start == end) return "";
+        if (array != null) {
+            return new String(array, start, end - start, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
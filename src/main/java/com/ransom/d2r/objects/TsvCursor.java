@@ -0,0 +1,62 @@
+package com.ransom.d2r.objects;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TsvCursor implements Closeable {
+    public final String[] headers;
+    private final BufferedReader reader;
+    private int rowIndex = 0;
+
+    private TsvCursor(BufferedReader reader) throws IOException {
+        this.reader = reader;
+        String headerLine = reader.readLine();
+        this.headers = headerLine == null ? new String[0] : split(headerLine);
+    }
+
+    public static TsvCursor open(Path path) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(path);
+        try {
+            return new TsvCursor(reader);
+        } catch (IOException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    // Returns the next data row, or null once the file is exhausted
+    public String[] next() throws IOException {
+        String line = reader.readLine();
+        if (line == null) return null;
+        rowIndex++;
+        return split(line);
+    }
+
+    // 1-based index of the row last returned by next(), matching its position in a scanFile result
+    public int rowIndex() {
+        return rowIndex;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static String[] split(String line) {
+        int count = 1;
+        for (int i = line.indexOf('\t'); i >= 0; i = line.indexOf('\t', i + 1)) count++;
+
+        String[] cells = new String[count];
+        int start = 0;
+        for (int col = 0; col < count - 1; col++) {
+            int end = line.indexOf('\t', start);
+            cells[col] = line.substring(start, end);
+            start = end + 1;
+        }
+        cells[count - 1] = line.substring(start);
+        return cells;
+    }
+}
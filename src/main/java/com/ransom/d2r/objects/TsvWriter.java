@@ -0,0 +1,58 @@
+package com.ransom.d2r.objects;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// Rows go to a temp file next to the output, which only replaces the output on commit(). Closing without a
+// commit, e.g. when a generator throws half way through, leaves the previous output untouched.
+public class TsvWriter implements Closeable {
+    private final BufferedWriter writer;
+    private final Path outputPath;
+    private final Path tempPath;
+    private boolean committed;
+
+    private TsvWriter(BufferedWriter writer, Path outputPath, Path tempPath) {
+        this.writer = writer;
+        this.outputPath = outputPath;
+        this.tempPath = tempPath;
+    }
+
+    public static TsvWriter open(Path outputPath, String[] headers) throws IOException {
+        Files.createDirectories(outputPath.getParent());
+        Path tempPath = Files.createTempFile(outputPath.getParent(), outputPath.getFileName().toString(), ".tmp");
+        TsvWriter tsv = new TsvWriter(Files.newBufferedWriter(tempPath), outputPath, tempPath);
+        if (headers != null && headers.length != 0) {
+            tsv.write(headers);
+        }
+        return tsv;
+    }
+
+    public void write(String[] row) throws IOException {
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) writer.write('\t');
+            if (row[i] != null) writer.write(row[i]);
+        }
+        writer.newLine();
+    }
+
+    public void commit() throws IOException {
+        writer.close();
+        try {
+            Files.move(tempPath, outputPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, outputPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        committed = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+        if (!committed) Files.deleteIfExists(tempPath);
+    }
+}
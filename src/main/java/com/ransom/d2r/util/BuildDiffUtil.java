@@ -0,0 +1,143 @@
+package com.ransom.d2r.util;
+
+import com.ransom.d2r.objects.BuildDiff;
+import com.ransom.d2r.objects.ParsedErrors;
+import com.ransom.d2r.objects.RowDiff;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class BuildDiffUtil {
+    private static final Logger log = LoggerFactory.getLogger(BuildDiffUtil.class);
+
+    // Diffs two extracted build folders, e.g. extracted/91636 against the next patch, oldest first
+    public static List<BuildDiff> diffBuilds(String oldDir, String newDir, int threads) throws IOException {
+        Path oldPath = Paths.get(oldDir);
+        Path newPath = Paths.get(newDir);
+        Set<String> oldFiles = new HashSet<>(ScannerUtil.scanTreeForTextFiles(oldDir));
+        Set<String> allFiles = new TreeSet<>(oldFiles);
+        allFiles.addAll(ScannerUtil.scanTreeForTextFiles(newDir));
+
+        List<BuildDiff> diffs = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        for (String txtFile : allFiles) {
+            Path oldFile = oldPath.resolve(txtFile);
+            Path newFile = newPath.resolve(txtFile);
+            if (!oldFiles.contains(txtFile)) {
+                diffs.add(new BuildDiff(txtFile, BuildDiff.Status.ADDED, List.of()));
+            } else if (!Files.isRegularFile(newFile)) {
+                diffs.add(new BuildDiff(txtFile, BuildDiff.Status.REMOVED, List.of()));
+            } else if (Files.size(oldFile) != Files.size(newFile) || Files.mismatch(oldFile, newFile) != -1) {
+                // Most files are untouched by a patch, so only those whose bytes differ are parsed at all
+                changed.add(txtFile);
+            }
+        }
+        log.info("{} of {} files changed between '{}' and '{}'", changed.size(), allFiles.size(), oldDir, newDir);
+
+        // Rows only in the new build show up as missing entries when the comparison runs the other way around
+        List<ParsedErrors> forward = ScannerUtil.scanForComparisons(oldDir, newDir, changed, threads);
+        List<ParsedErrors> backward = ScannerUtil.scanForComparisons(newDir, oldDir, changed, threads);
+        for (int i = 0; i < changed.size(); i++) {
+            ParsedErrors removed = forward.get(i);
+            ParsedErrors added = backward.get(i);
+
+            BuildDiff diff = new BuildDiff(removed.file, BuildDiff.Status.CHANGED, removed.extHeaders);
+            diff.addedHeaders.addAll(removed.unknownHeaders);
+            diff.removedHeaders.addAll(removed.missingHeaders);
+            diff.addedEntries.addAll(added.missingEntries);
+            diff.removedEntries.addAll(removed.missingEntries);
+            diff.changedEntries.addAll(removed.mismatchedEntries);
+
+            // Byte changes that compare equal, such as reordered rows or line endings, are not patch notes
+            if (diff.addedHeaders.isEmpty() && diff.removedHeaders.isEmpty() && diff.addedEntries.isEmpty()
+                    && diff.removedEntries.isEmpty() && diff.changedEntries.isEmpty()) continue;
+            diffs.add(diff);
+        }
+
+        diffs.sort((a, b) -> a.file.compareTo(b.file));
+        return diffs;
+    }
+
+    public static String generate(String outputDir, List<BuildDiff> diffs, String oldName, String newName, String fileName) {
+        try {
+            Path outputReport = Paths.get(outputDir).resolve(fileName + ".txt");
+            Files.createDirectories(outputReport.getParent());
+            try (BufferedWriter out = Files.newBufferedWriter(outputReport)) {
+                writePatchNotes(out, diffs, oldName, newName);
+            }
+            return "Report written to: " + outputReport.toAbsolutePath();
+        }
+        catch (Exception e) {
+            return "Unable to generate report: " + e.getMessage();
+        }
+    }
+
+    private static void writePatchNotes(BufferedWriter out, List<BuildDiff> diffs, String oldName, String newName) throws IOException {
+        out.append("Changes from ").append(oldName).append(" to ").append(newName).append("\n");
+        if (diffs.isEmpty()) {
+            out.append("\n\tNo data changes.\n");
+            return;
+        }
+
+        for (BuildDiff diff : diffs) {
+            out.append("\n\tFile: '").append(diff.file).append("'");
+            if (diff.status == BuildDiff.Status.ADDED) {
+                out.append(" was added\n");
+                continue;
+            }
+            if (diff.status == BuildDiff.Status.REMOVED) {
+                out.append(" was removed\n");
+                continue;
+            }
+            out.append("\n");
+
+            if (!diff.addedHeaders.isEmpty()) {
+                out.append("\t\tAdded Columns: ").append(String.join(", ", diff.addedHeaders)).append("\n");
+            }
+            if (!diff.removedHeaders.isEmpty()) {
+                out.append("\t\tRemoved Columns: ").append(String.join(", ", diff.removedHeaders)).append("\n");
+            }
+            if (!diff.addedEntries.isEmpty()) {
+                out.append("\t\tAdded Rows:\n");
+                for (String row : diff.addedEntries) {
+                    out.append("\t\t\t+ '").append(rowKey(row)).append("'\n");
+                }
+            }
+            if (!diff.removedEntries.isEmpty()) {
+                out.append("\t\tRemoved Rows:\n");
+                for (String row : diff.removedEntries) {
+                    out.append("\t\t\t- '").append(rowKey(row)).append("'\n");
+                }
+            }
+            if (!diff.changedEntries.isEmpty()) {
+                out.append("\t\tChanged Rows:\n");
+                for (RowDiff row : diff.changedEntries) {
+                    out.append("\t\t\t'").append(row.key).append("':");
+                    for (int i = 0; i < row.columns.length; i++) {
+                        int col = row.columns[i];
+                        String header = col < diff.headers.size() ? diff.headers.get(col) : "#" + col;
+                        out.append(i == 0 ? " " : ", ")
+                                .append(header).append(" '").append(row.extValues[i])
+                                .append("' -> '").append(row.modValues[i]).append("'");
+                    }
+                    out.append("\n");
+                }
+            }
+        }
+    }
+
+    private static String rowKey(String row) {
+        int tab = row.indexOf('\t');
+        return tab < 0 ? row : row.substring(0, tab);
+    }
+}
@@ -1,5 +1,7 @@
 package com.ransom.d2r.util;
 
+import com.ransom.d2r.objects.TsvBuffer;
+
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -8,17 +10,9 @@ import java.util.List;
 public class CharStatsUtil {
     public static List<String> loadClassNames(Path extractedDir) throws IOException {
         Path charStatsPath = extractedDir.resolve("charstats.txt");
-        List<String[]> rows = ScannerUtil.scanFile(charStatsPath);
-
-        String[] header = rows.getFirst();
-        int classIndex = -1;
+        TsvBuffer tsv = TsvBuffer.read(charStatsPath);
 
-        for (int i = 0; i < header.length; i++) {
-            if ("class".equalsIgnoreCase(header[i])) {
-                classIndex = i;
-                break;
-            }
-        }
+        int classIndex = tsv.columnIndex("class", true);
 
         if (classIndex == -1) {
             throw new IllegalStateException("No 'class' column found in charstats.txt");
@@ -26,8 +20,8 @@ public class CharStatsUtil {
 
         List<String> classes = new ArrayList<>();
 
-        for (int i = 1; i < rows.size(); i++) {
-            classes.add(rows.get(i)[classIndex]);
+        for (int i = 1; i < tsv.rowCount(); i++) {
+            classes.add(tsv.cell(i, classIndex));
         }
 
         return classes;
@@ -1,6 +1,8 @@
 package com.ransom.d2r.util;
 
 import com.ransom.d2r.objects.ExperienceData;
+import com.ransom.d2r.objects.TsvCursor;
+import com.ransom.d2r.objects.TsvWriter;
 
 import java.io.IOException;
 import java.math.BigDecimal;
@@ -13,6 +15,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class ExperienceUtil {
+    // charstats.txt is only read for the class names, relative to the extraction root for ExtractionUtil.extractInProcess
+    public static final List<String> REQUIRED_FILES = List.of("data/global/excel/experience.txt", "data/global/excel/charstats.txt");
     public static final int MAX_LEVEL_LIMIT = 127;
     public static final BigInteger MAX_XP_PER_LEVEL =  new BigInteger("4000000000");
     public static final BigInteger MIN_VAL = new BigInteger("1");
@@ -59,6 +63,8 @@ public class ExperienceUtil {
         return progression;
     }
 
+    // Rows are streamed straight to the output file, the returned data only carries the headers, level column and
+    // level zero row, its rows list is always empty
     public static ExperienceData generate(
             String extractedDir,
             String outputDir,
@@ -81,72 +87,71 @@ public class ExperienceUtil {
 
             List<BigInteger> lvlProgression = getProgression(maxLevel, maxXpPerLevel, minXpPerLevel, 1, difficulty, false);
             List<BigInteger> expRatioProgression = getProgression(maxLevel, new BigInteger("" + maxExpRatio), new BigInteger("" + minExpRatio), expRatioPenaltyOffset, 1, true);
-            ExperienceData expData = loadExperienceData(extracted, CharStatsUtil.loadClassNames(extracted), lvlProgression, expRatioProgression);
-
-            WriteUtil.writeFile(output.resolve("experience.txt"), expData);
-            return expData;
+            return writeExperienceData(extracted, output.resolve("experience.txt"), CharStatsUtil.loadClassNames(extracted), lvlProgression, expRatioProgression);
         } catch (IOException e) {
             throw new RuntimeException("Failed building experience.txt", e);
         }
     }
 
-    private static ExperienceData loadExperienceData(Path extractedDir, List<String> classes, List<BigInteger> lvlProgressionOverride, List<BigInteger> expRatioProgressionOverride) throws IOException {
+    private static ExperienceData writeExperienceData(Path extractedDir, Path outputPath, List<String> classes, List<BigInteger> lvlProgressionOverride, List<BigInteger> expRatioProgressionOverride) throws IOException {
         Path expPath = extractedDir.resolve("experience.txt");
-        List<String[]> rows = ScannerUtil.scanFile(expPath);
-
-        int numOfClasses = classes.size();
-        ExperienceData data = new ExperienceData(rows.getFirst(), new ArrayList<>());
-
-        for (int i = 0; i < data.headers.length; i++) {
-            if (data.headers[i].equals("level")) {
-                data.levelColumnIndex = i;
+        try (TsvCursor cursor = TsvCursor.open(expPath);
+             TsvWriter writer = TsvWriter.open(outputPath, cursor.headers)) {
+            int numOfClasses = classes.size();
+            ExperienceData data = new ExperienceData(cursor.headers, List.of());
+
+            for (int i = 0; i < data.headers.length; i++) {
+                if (data.headers[i].equals("level")) {
+                    data.levelColumnIndex = i;
+                }
             }
-        }
 
-        boolean maxLvlFound = false;
-
-        for (int i = 1; i < rows.size(); i++) {
-            String[] row = rows.get(i);
-            if (lvlProgressionOverride != null && expRatioProgressionOverride != null) {
-                if (row[0].equals("MaxLvl")) {
-                    int maxLevel = lvlProgressionOverride.size();
-                    for (int ii = 1; ii < numOfClasses; ii++) {
-                        row[ii] = maxLevel + "";
+            boolean maxLvlFound = false;
+
+            String[] row;
+            while ((row = cursor.next()) != null) {
+                if (lvlProgressionOverride != null && expRatioProgressionOverride != null) {
+                    if (row[0].equals("MaxLvl")) {
+                        int maxLevel = lvlProgressionOverride.size();
+                        for (int ii = 1; ii < numOfClasses; ii++) {
+                            row[ii] = maxLevel + "";
+                        }
+                        maxLvlFound = true;
+                    }
+                    else if ("0".equals(row[data.levelColumnIndex])) {
+                        data.levelZeroRow = row;
+                        writer.write(row);
+                        break;
                     }
-                    maxLvlFound = true;
-                }
-                else if ("0".equals(row[data.levelColumnIndex])) {
-                    data.levelZeroRow = row;
-                    data.rows.add(row);
-                    break;
                 }
+                writer.write(row);
             }
-            data.rows.add(row);
-        }
 
-        if (!maxLvlFound) {
-            throw new IllegalStateException("No 'MaxLvl' column found in experience.txt");
-        }
-
-        if (lvlProgressionOverride != null && expRatioProgressionOverride != null) {
-            if (data.levelZeroRow == null) throw new IllegalArgumentException("Unable to level zero row in experience.txt");
-
-            for (int level = 1; level <= lvlProgressionOverride.size(); level++) {
-                String[] newRow = data.levelZeroRow.clone();
-                newRow[data.levelColumnIndex] = String.valueOf(level);
-                newRow[newRow.length - 1] = expRatioProgressionOverride.get(level - 1).toString();
+            if (!maxLvlFound) {
+                throw new IllegalStateException("No 'MaxLvl' column found in experience.txt");
+            }
 
-                for (int col = 0; col < data.headers.length; col++) {
-                    String columnName = data.headers[col];
-                    if (classes.contains(columnName)) {
-                        newRow[col] = lvlProgressionOverride.get(level - 1).toString();
+            if (lvlProgressionOverride != null && expRatioProgressionOverride != null) {
+                if (data.levelZeroRow == null) throw new IllegalArgumentException("Unable to level zero row in experience.txt");
+
+                for (int level = 1; level <= lvlProgressionOverride.size(); level++) {
+                    String[] newRow = data.levelZeroRow.clone();
+                    newRow[data.levelColumnIndex] = String.valueOf(level);
+                    newRow[newRow.length - 1] = expRatioProgressionOverride.get(level - 1).toString();
+
+                    for (int col = 0; col < data.headers.length; col++) {
+                        String columnName = data.headers[col];
+                        if (classes.contains(columnName)) {
+                            newRow[col] = lvlProgressionOverride.get(level - 1).toString();
+                        }
                     }
-                }
 
-                data.rows.add(newRow);
+                    writer.write(newRow);
+                }
             }
-        }
 
-        return data;
+            writer.commit();
+            return data;
+        }
     }
 }
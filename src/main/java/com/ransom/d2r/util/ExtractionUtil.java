@@ -1,58 +1,376 @@
 package com.ransom.d2r.util;
 
+import com.ransom.d2r.casc.CascStorage;
+import com.ransom.d2r.objects.ExtractedFiles;
 import com.ransom.d2r.objects.ProcessRunner;
+import com.ransom.d2r.objects.TsvBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 public class ExtractionUtil {
     private static final Logger log = LoggerFactory.getLogger(ExtractionUtil.class);
     private static final String D2R_CASC_CLI_NAME = "D2RCascCLI.exe";
     private static Path LOADED_D2R_CASC_CLI = null;
-
+    // Join columns shared by many excel tables, matched against header names ignoring case
+    public static final Set<String> DEFAULT_LOOKUP_COLUMNS = Set.of("code", "id", "type");
+    // One row per source file with the hash of the content its table was last built from
+    private static final String INDEX_TABLE = "_d2r_index";
+    // Bump whenever ingestion changes what a table looks like, so every stored hash stops matching
+    private static final String INDEX_FORMAT_VERSION = "1";
+    private static final String VERSION_FILE = "data/global/dataversionbuild.txt";
+    // Maps the last seen .build.info fingerprint to its version folder
+    private static final String BUILD_CACHE_FILE = ".build";
+
+    // The bundled CLI predates -t and rejects it, so it always runs with a single worker
     public static String generate(String d2rDir, String dstDir, ProcessRunner runner) throws Exception {
         loadCli();
+        return generate(d2rDir, dstDir, runner, LOADED_D2R_CASC_CLI, 1, Runtime.getRuntime().availableProcessors());
+    }
+
+    public static String generate(String d2rDir, String dstDir, ProcessRunner runner, Path cli) throws Exception {
+        return generate(d2rDir, dstDir, runner, cli, 1, Runtime.getRuntime().availableProcessors());
+    }
+
+    // Cheapest check first: the install's .build.info fingerprint, then extracting only the build id, then everything.
+    // cliThreads is the number of CLI extraction workers, only a CLI built from src/cpp accepts more than one.
+    // indexThreads is the number of parser threads when indexing the result.
+    public static String generate(
+            String d2rDir,
+            String dstDir,
+            ProcessRunner runner,
+            Path cli,
+            int cliThreads,
+            int indexThreads
+    ) throws Exception {
+        Path extractedRoot = Paths.get(dstDir).resolve("extracted").normalize().toAbsolutePath();
+        Files.createDirectories(extractedRoot);
+        String fingerprint = buildFingerprint(Paths.get(d2rDir));
+
+        String cachedVersion = readCachedBuild(extractedRoot, fingerprint);
+        if (cachedVersion != null && isExtracted(extractedRoot.resolve(cachedVersion))) {
+            log.info("Installed build unchanged, using version folder '{}'", extractedRoot.resolve(cachedVersion));
+            return extractedRoot.resolve(cachedVersion).toString();
+        }
+
+        String probedVersion = probeVersion(cli, d2rDir, extractedRoot.resolve("probe"));
+        if (probedVersion != null && isExtracted(extractedRoot.resolve(probedVersion))) {
+            writeCachedBuild(extractedRoot, fingerprint, probedVersion);
+            log.info("Build {} was already extracted, using version folder '{}'", probedVersion, extractedRoot.resolve(probedVersion));
+            return extractedRoot.resolve(probedVersion).toString();
+        }
 
-        Path destPath = Paths.get(dstDir).resolve("extracted/latest").normalize().toAbsolutePath();
+        Path destPath = extractedRoot.resolve("latest");
         Files.createDirectories(destPath);
-        String destAbs = destPath.toString();
+        // A single worker is the CLI default, leaving the flag out keeps that case working with older CLI builds
+        if (cliThreads > 1) {
+            runCli(cli, runner, "-s", d2rDir, "-d", destPath.toString(), "-p", "*", "-t", String.valueOf(cliThreads));
+        } else {
+            runCli(cli, runner, "-s", d2rDir, "-d", destPath.toString(), "-p", "*");
+        }
+
+        String version = ScannerUtil.scanFile(destPath.resolve(VERSION_FILE)).getFirst()[0];
+        Path versionPath = destPath.getParent().resolve(version);
+
+        if (isExtracted(versionPath)) {
+            log.info("Version folder '{}' already exists, skipping extraction", versionPath);
+            writeCachedBuild(extractedRoot, fingerprint, version);
+            return versionPath.toString();
+        }
+
+        // generateInMemory leaves a folder holding only the database, the files replace it and the index is rebuilt
+        if (Files.exists(versionPath)) deleteTree(versionPath);
+        Files.move(destPath, versionPath);
+        log.info("Renamed 'latest' to version folder '{}'", versionPath);
+
+        Path dbFile = versionPath.resolve(D2R_CASC_CLI_NAME.split("\\.")[0] + ".db").toAbsolutePath();
+        Path previousDb = findPreviousDb(versionPath, dbFile.getFileName().toString());
+        if (previousDb != null) {
+            deriveExtractedData(versionPath, dbFile.toString(), previousDb.toString(), indexThreads);
+        } else {
+            indexExtractedData(versionPath, dbFile.toString(), indexThreads);
+        }
+
+        writeCachedBuild(extractedRoot, fingerprint, version);
+        return versionPath.toString();
+    }
+
+    // Reads the storage in-process and indexes straight from memory, only the database is written below the version
+    // folder. There is no build cache to consult since the caller needs the file contents either way.
+    public static ExtractedFiles generateInMemory(String d2rDir, String dstDir, int threads) throws Exception {
+        Path extractedRoot = Paths.get(dstDir).resolve("extracted").normalize().toAbsolutePath();
+        ExtractedFiles extracted = extractToMemory(d2rDir, null);
+        ByteBuffer versionFile = extracted.get(VERSION_FILE);
+        if (versionFile == null) throw new IOException("'" + VERSION_FILE + "' is missing from the storage");
+        String version = TsvBuffer.wrap(versionFile).cell(0, 0);
+
+        Path versionPath = extractedRoot.resolve(version);
+        Path dbFile = versionPath.resolve(D2R_CASC_CLI_NAME.split("\\.")[0] + ".db").toAbsolutePath();
+        if (Files.exists(dbFile)) {
+            log.info("Build {} is already indexed in '{}'", version, dbFile);
+            return extracted;
+        }
+
+        Files.createDirectories(versionPath);
+        Path previousDb = findPreviousDb(versionPath, dbFile.getFileName().toString());
+        if (previousDb != null) {
+            deriveExtractedData(extracted, dbFile.toString(), previousDb.toString(), threads);
+        } else {
+            indexExtractedData(extracted, dbFile.toString(), threads);
+        }
+        return extracted;
+    }
+
+    public static Path extractPattern(String d2rDir, Path destDir, String pattern, ProcessRunner runner) throws Exception {
+        loadCli();
+        return extractPattern(d2rDir, destDir, pattern, runner, LOADED_D2R_CASC_CLI);
+    }
+
+    // The CLI still walks the whole storage, but only matching data/global text files are written
+    public static Path extractPattern(String d2rDir, Path destDir, String pattern, ProcessRunner runner, Path cli) throws Exception {
+        Path destPath = destDir.normalize().toAbsolutePath();
+        Files.createDirectories(destPath);
+        runCli(cli, runner, "-s", d2rDir, "-d", destPath.toString(), "-p", pattern);
+        return destPath;
+    }
+
+    // Files are opened by name so the storage is never enumerated, e.g. a generator's REQUIRED_FILES or readFileList.
+    // Needs a CLI built from src/cpp, the bundled one has no -f, extractInProcess takes the same list without it.
+    public static Path extractFiles(
+            String d2rDir,
+            Path destDir,
+            Collection<String> files,
+            ProcessRunner runner,
+            Path cli
+    ) throws Exception {
+        Path destPath = destDir.normalize().toAbsolutePath();
+        Files.createDirectories(destPath);
+
+        Path listFile = Files.createTempFile("d2r-files", ".txt");
+        try {
+            Files.write(listFile, storageNames(files), StandardCharsets.UTF_8);
+            runCli(cli, runner, "-s", d2rDir, "-d", destPath.toString(), "-f", listFile.toString());
+        } finally {
+            Files.deleteIfExists(listFile);
+        }
+        return destPath;
+    }
+
+    // In-process counterpart of extractPattern "*" (files == null) and extractFiles, works wherever Java runs
+    public static Path extractInProcess(String d2rDir, Path destDir, Collection<String> files) throws IOException {
+        Path destPath = destDir.normalize().toAbsolutePath();
+        Files.createDirectories(destPath);
+
+        List<String> written = new ArrayList<>();
+        try (CascStorage storage = CascStorage.open(Paths.get(d2rDir))) {
+            for (String name : storageNames(storage, files)) {
+                Path target = destPath.resolve(relativeName(name));
+                try {
+                    ByteBuffer contents = storage.read(name);
+                    Files.createDirectories(target.getParent());
+                    try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                        while (contents.hasRemaining()) out.write(contents);
+                    }
+                    written.add(name);
+                } catch (IOException e) {
+                    log.warn("Failed to extract '{}': {}", name, e.getMessage());
+                }
+            }
+        }
+
+        // Same file reference the CLI leaves behind, so readFileList works for either extractor
+        Files.write(destPath.resolve("list-file-d2r.txt"), written, StandardCharsets.UTF_8);
+        log.info("Extracted {} files in-process to '{}'", written.size(), destPath);
+        return destPath;
+    }
+
+    // Like extractInProcess, but the decoded files are kept in memory instead of being written below a folder
+    public static ExtractedFiles extractToMemory(String d2rDir, Collection<String> files) throws IOException {
+        ExtractedFiles extracted = new ExtractedFiles(d2rDir);
+        try (CascStorage storage = CascStorage.open(Paths.get(d2rDir))) {
+            for (String name : storageNames(storage, files)) {
+                try {
+                    extracted.put(relativeName(name), storage.read(name));
+                } catch (IOException e) {
+                    log.warn("Failed to extract '{}': {}", name, e.getMessage());
+                }
+            }
+        }
+        log.info("Extracted {} files ({} bytes) into memory", extracted.size(), extracted.totalBytes());
+        return extracted;
+    }
+
+    private static List<String> storageNames(CascStorage storage, Collection<String> files) {
+        return files == null ? listGlobalTextFiles(storage) : storageNames(files);
+    }
+
+    // The selection the CLI makes when extracting everything: data/global text files, except the excel/base templates
+    public static List<String> listGlobalTextFiles(CascStorage storage) {
+        List<String> names = new ArrayList<>();
+        for (String name : storage.list()) {
+            String path = name.replace("\\", "/");
+            if (path.endsWith(".txt") && path.contains("data/global") && !path.contains("data/global/excel/base/")) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    // Storage names carry the "data:" manifest prefix, paths below an extraction root do not
+    public static String relativeName(String name) {
+        return name.startsWith("data:") ? name.substring(5) : name;
+    }
+
+    // The reverse of relativeName, also accepts Windows separators and names that are already prefixed
+    public static List<String> storageNames(Collection<String> files) {
+        List<String> names = new ArrayList<>();
+        for (String file : files) {
+            String name = file.replace("\\", "/");
+            names.add(name.startsWith("data:") ? name : "data:" + name);
+        }
+        return names;
+    }
+
+    // Reads a list-file-d2r.txt written by an earlier extraction back into paths relative to the extraction root
+    public static List<String> readFileList(Path listFile) throws IOException {
+        List<String> files = new ArrayList<>();
+        for (String line : Files.readAllLines(listFile, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) continue;
+            files.add(relativeName(line));
+        }
+        return files;
+    }
+
+    private static void runCli(Path cli, ProcessRunner runner, String... args) throws Exception {
         ProcessBuilder pb = new ProcessBuilder();
-        pb.command(LOADED_D2R_CASC_CLI.toAbsolutePath().toString());
-        pb.command().add("-s");
-        pb.command().add(d2rDir);
-        pb.command().add("-d");
-        pb.command().add(destAbs);
-        pb.command().add("-p");
-        pb.command().add("*");
+        pb.command(cli.toAbsolutePath().toString());
+        pb.command().addAll(Arrays.asList(args));
         pb.redirectErrorStream(true);
         log.info("Running: {}", String.join(" ", pb.command()));
 
         Process runningProcess = pb.start();
         runner.run(runningProcess);
         runner.onFinish(runningProcess.waitFor());
+    }
 
-        String version = ScannerUtil.scanFile(destPath.resolve("data/global/dataversionbuild.txt")).getFirst()[0];
-        Path versionPath = destPath.getParent().resolve(version);
+    private static boolean isExtracted(Path versionPath) {
+        return Files.isRegularFile(versionPath.resolve(VERSION_FILE));
+    }
 
-        if (Files.exists(versionPath)) {
-            log.info("Version folder '{}' already exists, skipping extraction", versionPath);
-            return null;
+    // The launcher rewrites .build.info on every patch, so its size and timestamp identify the installed build
+    private static String buildFingerprint(Path d2rPath) throws IOException {
+        Path buildInfo = d2rPath.resolve(".build.info");
+        if (!Files.isRegularFile(buildInfo)) return null;
+        return Files.size(buildInfo) + ":" + Files.getLastModifiedTime(buildInfo).toMillis();
+    }
+
+    private static String readCachedBuild(Path extractedRoot, String fingerprint) throws IOException {
+        Path cacheFile = extractedRoot.resolve(BUILD_CACHE_FILE);
+        if (fingerprint == null || !Files.isRegularFile(cacheFile)) return null;
+
+        String[] cached = Files.readString(cacheFile, StandardCharsets.UTF_8).trim().split("\t");
+        if (cached.length != 2 || !cached[0].equals(fingerprint)) return null;
+        return Files.isDirectory(extractedRoot.resolve(cached[1])) ? cached[1] : null;
+    }
+
+    private static void writeCachedBuild(Path extractedRoot, String fingerprint, String version) throws IOException {
+        if (fingerprint == null) return;
+        Files.writeString(extractedRoot.resolve(BUILD_CACHE_FILE), fingerprint + "\t" + version, StandardCharsets.UTF_8);
+    }
+
+    // Extracts only dataversionbuild.txt, returns null when the CLI could not produce it
+    private static String probeVersion(Path cli, String d2rDir, Path probePath) throws Exception {
+        ProcessBuilder pb = new ProcessBuilder(
+                cli.toAbsolutePath().toString(),
+                "-s", d2rDir,
+                "-d", probePath.toString(),
+                "-p", "*" + Paths.get(VERSION_FILE).getFileName()
+        );
+        pb.redirectErrorStream(true);
+        pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        log.info("Probing build id: {}", String.join(" ", pb.command()));
+
+        int exitCode = pb.start().waitFor();
+        Path versionFile = probePath.resolve(VERSION_FILE);
+        try {
+            if (exitCode != 0 || !Files.isRegularFile(versionFile)) {
+                log.warn("Build id probe failed (exit code {}), falling back to a full extraction", exitCode);
+                return null;
+            }
+            List<String[]> rows = ScannerUtil.scanFile(versionFile);
+            return rows.isEmpty() || rows.getFirst()[0].isEmpty() ? null : rows.getFirst()[0];
+        } finally {
+            deleteTree(probePath);
         }
+    }
 
-        Files.move(destPath, versionPath);
-        log.info("Renamed 'latest' to version folder '{}'", versionPath);
+    private static void deleteTree(Path root) throws IOException {
+        if (!Files.exists(root)) return;
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
 
-        Path dbFile = versionPath.resolve(D2R_CASC_CLI_NAME.split("\\.")[0] + ".db").toAbsolutePath();
-        indexExtractedData(versionPath, dbFile.toString());
+    // The newest other build that already has a database, version folders are named by their build number
+    private static Path findPreviousDb(Path versionPath, String dbName) throws IOException {
+        Path best = null;
+        long bestVersion = Long.MIN_VALUE;
+        try (Stream<Path> dirs = Files.list(versionPath.getParent())) {
+            for (Path dir : dirs.filter(Files::isDirectory).toList()) {
+                if (dir.equals(versionPath) || !Files.isRegularFile(dir.resolve(dbName))) continue;
+                try {
+                    long version = Long.parseLong(dir.getFileName().toString());
+                    if (version > bestVersion) {
+                        bestVersion = version;
+                        best = dir.resolve(dbName);
+                    }
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return best;
+    }
 
-        return versionPath.toString();
+    // The newest fully extracted build below versionPath's, the natural base for BuildDiffUtil.diffBuilds
+    public static Path findPreviousBuild(Path versionPath) throws IOException {
+        long current = Long.parseLong(versionPath.getFileName().toString());
+        Path best = null;
+        long bestVersion = Long.MIN_VALUE;
+        try (Stream<Path> dirs = Files.list(versionPath.getParent())) {
+            for (Path dir : dirs.filter(Files::isDirectory).toList()) {
+                if (!isExtracted(dir)) continue;
+                try {
+                    long version = Long.parseLong(dir.getFileName().toString());
+                    if (version < current && version > bestVersion) {
+                        bestVersion = version;
+                        best = dir;
+                    }
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return best;
     }
 
     private static void loadCli() throws IOException {
@@ -75,82 +393,410 @@ public class ExtractionUtil {
     }
 
     public static void indexExtractedData(Path extractedPath, String dbDir) throws Exception {
+        indexExtractedData(extractedPath, dbDir, Runtime.getRuntime().availableProcessors(), DEFAULT_LOOKUP_COLUMNS);
+    }
+
+    public static void indexExtractedData(Path extractedPath, String dbDir, int threads) throws Exception {
+        indexExtractedData(extractedPath, dbDir, threads, DEFAULT_LOOKUP_COLUMNS);
+    }
+
+    // Files are parsed on a pool of threads while the calling thread is the only one that touches the connection.
+    // Every table gets an index on its first column plus one on each header named in lookupColumns.
+    public static void indexExtractedData(
+            Path extractedPath,
+            String dbDir,
+            int threads,
+            Set<String> lookupColumns
+    ) throws Exception {
         Path dbFile = Paths.get(dbDir);
         if (Files.exists(dbFile)) {
             Files.delete(dbFile);
             log.info("Deleted existing extraction database: {}", dbFile);
         }
+        reindexExtractedData(extractedPath, dbDir, threads, lookupColumns);
+    }
+
+    public static void reindexExtractedData(Path extractedPath, String dbDir) throws Exception {
+        reindexExtractedData(extractedPath, dbDir, Runtime.getRuntime().availableProcessors(), DEFAULT_LOOKUP_COLUMNS);
+    }
+
+    // Only tables whose source file hash changed since they were loaded are dropped and reloaded
+    public static void reindexExtractedData(
+            Path extractedPath,
+            String dbDir,
+            int threads,
+            Set<String> lookupColumns
+    ) throws Exception {
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(extractedPath)) {
+            files = paths.filter(Files::isRegularFile)
+                    .filter(p -> p.toString().endsWith(".txt"))
+                    .sorted()
+                    .toList();
+        }
 
+        List<SourceFile> sources = new ArrayList<>();
+        for (Path file : files) {
+            sources.add(new SourceFile(extractedPath.relativize(file).toString(), file, null));
+        }
+        reindex(sources, dbDir, threads, lookupColumns);
+    }
+
+    public static void indexExtractedData(ExtractedFiles extracted, String dbDir, int threads) throws Exception {
+        Path dbFile = Paths.get(dbDir);
+        if (Files.exists(dbFile)) {
+            Files.delete(dbFile);
+            log.info("Deleted existing extraction database: {}", dbFile);
+        }
+        reindexExtractedData(extracted, dbDir, threads, DEFAULT_LOOKUP_COLUMNS);
+    }
+
+    // Same tables and hashes as indexing the folder the files would have been written to
+    public static void reindexExtractedData(
+            ExtractedFiles extracted,
+            String dbDir,
+            int threads,
+            Set<String> lookupColumns
+    ) throws Exception {
+        List<SourceFile> sources = new ArrayList<>();
+        for (String name : new TreeSet<>(extracted.names())) {
+            if (name.endsWith(".txt")) sources.add(new SourceFile(name, null, extracted));
+        }
+        reindex(sources, dbDir, threads, lookupColumns);
+    }
+
+    private static void reindex(List<SourceFile> files, String dbDir, int threads, Set<String> lookupColumns) throws Exception {
         log.info("Storing extraction into db: {}", dbDir);
         try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + dbDir)) {
             try (Statement pragma = conn.createStatement()) {
                 pragma.execute("PRAGMA journal_mode = MEMORY;");
                 pragma.execute("PRAGMA synchronous = OFF;");
                 pragma.execute("PRAGMA temp_store = MEMORY;");
+                pragma.execute("CREATE TABLE IF NOT EXISTS \"" + INDEX_TABLE + "\" (table_name TEXT PRIMARY KEY, hash TEXT NOT NULL);");
             }
 
             conn.setAutoCommit(false);
-            try (Stream<Path> paths = Files.walk(extractedPath)) {
-                paths.filter(Files::isRegularFile)
-                        .filter(p -> p.toString().endsWith(".txt"))
-                        .forEach(path -> {
-                            try {
-                                processFile(conn, extractedPath, path);
-                            } catch (Exception e) {
-                                log.warn("Skipping {}: {}", path, e.getMessage());
-                            }
-                        });
+            Map<String, String> stored = readIndexHashes(conn);
+            String salt = INDEX_FORMAT_VERSION + "\n" + String.join(",", new TreeSet<>(lookupColumns)) + "\n";
+
+            List<SourceFile> changed = new ArrayList<>();
+            for (SourceFile file : files) {
+                file.hash = hash(salt, file);
+                if (!file.hash.equals(stored.remove(file.tableName))) changed.add(file);
+            }
+
+            // Whatever is left in stored belongs to files that no longer exist
+            for (String tableName : stored.keySet()) {
+                dropTable(conn, tableName);
+            }
+            for (SourceFile file : changed) {
+                dropTable(conn, file.tableName);
+            }
+            log.info("{} of {} tables need loading", changed.size(), files.size());
+
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, changed.size())));
+            try {
+                Set<String> failed = new HashSet<>();
+                Map<SourceFile, TableInfo> tables = createTables(conn, changed, executor, failed);
+                insertAll(conn, tables, executor, threads, failed);
+                // A half loaded table would pass for the whole file, so it goes and the file is retried on the next run
+                for (String tableName : failed) {
+                    dropTable(conn, tableName);
+                }
+                // Built after the rows are in, a single sort is cheaper than maintaining the b-tree on every insert
+                for (TableInfo table : tables.values()) {
+                    if (!failed.contains(table.name)) createIndexes(conn, table, lookupColumns);
+                }
+                // Files that produced no table are recorded too, so they are not re-read until they change
+                for (SourceFile file : changed) {
+                    if (!failed.contains(file.tableName)) writeIndexHash(conn, file.tableName, file.hash);
+                }
+            } finally {
+                executor.shutdownNow();
             }
             conn.commit();
         }
     }
 
-    private static String buildTableName(Path rootDir, Path file) {
-        Path relative = rootDir.relativize(file);
+    // Copies another build's database next to the new extraction, then reloads only what differs between the builds
+    public static void deriveExtractedData(Path extractedPath, String dbDir, String baseDbDir) throws Exception {
+        deriveExtractedData(extractedPath, dbDir, baseDbDir, Runtime.getRuntime().availableProcessors());
+    }
 
-        String name = relative.toString()
-                .replace("\\", "_")
-                .replace("/", "_")
-                .replaceAll("(?i)\\.txt$", "");
+    public static void deriveExtractedData(Path extractedPath, String dbDir, String baseDbDir, int threads) throws Exception {
+        Files.copy(Paths.get(baseDbDir), Paths.get(dbDir), StandardCopyOption.REPLACE_EXISTING);
+        log.info("Copied '{}' as the starting point for '{}'", baseDbDir, dbDir);
+        reindexExtractedData(extractedPath, dbDir, threads, DEFAULT_LOOKUP_COLUMNS);
+    }
 
-        name = name.replaceAll("[^a-zA-Z0-9_]", "_");
+    public static void deriveExtractedData(ExtractedFiles extracted, String dbDir, String baseDbDir, int threads) throws Exception {
+        Files.copy(Paths.get(baseDbDir), Paths.get(dbDir), StandardCopyOption.REPLACE_EXISTING);
+        log.info("Copied '{}' as the starting point for '{}'", baseDbDir, dbDir);
+        reindexExtractedData(extracted, dbDir, threads, DEFAULT_LOOKUP_COLUMNS);
+    }
 
-        return name;
+    private static Map<String, String> readIndexHashes(Connection conn) throws SQLException {
+        Map<String, String> hashes = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT table_name, hash FROM \"" + INDEX_TABLE + "\";")) {
+            while (rs.next()) {
+                hashes.put(rs.getString(1), rs.getString(2));
+            }
+        }
+        return hashes;
     }
 
-    private static void processFile(Connection conn, Path rootDir, Path file) throws Exception {
-        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+    private static void writeIndexHash(Connection conn, String tableName, String hash) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT OR REPLACE INTO \"" + INDEX_TABLE + "\" (table_name, hash) VALUES (?, ?);")) {
+            ps.setString(1, tableName);
+            ps.setString(2, hash);
+            ps.executeUpdate();
+        }
+    }
+
+    // Dropping the table also drops its indexes
+    private static void dropTable(Connection conn, String tableName) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS \"" + tableName + "\";");
+        }
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM \"" + INDEX_TABLE + "\" WHERE table_name = ?;")) {
+            ps.setString(1, tableName);
+            ps.executeUpdate();
+        }
+    }
+
+    private static String hash(String salt, SourceFile file) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt.getBytes(StandardCharsets.UTF_8));
+            if (file.path != null) digest.update(Files.readAllBytes(file.path));
+            else digest.update(file.memory.get(file.relativePath));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Every table exists before the first row is parsed, so the writer never stalls on DDL.
+    // Column types need every value, so the files are read once up front on the pool to infer them.
+    private static Map<SourceFile, TableInfo> createTables(
+            Connection conn,
+            List<SourceFile> files,
+            ExecutorService executor,
+            Set<String> failed
+    ) throws Exception {
+        List<Future<TableInfo>> futures = new ArrayList<>();
+        for (SourceFile file : files) {
+            futures.add(executor.submit(() -> inferTable(file)));
+        }
+
+        Map<SourceFile, TableInfo> tables = new LinkedHashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            SourceFile file = files.get(i);
+            try {
+                TableInfo table = futures.get(i).get();
+                if (table == null) continue;
+                createTable(conn, table);
+                tables.put(file, table);
+            } catch (ExecutionException | SQLException e) {
+                Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                log.warn("Skipping {}: {}", file, cause.getMessage());
+                failed.add(file.tableName);
+            }
+        }
+        return tables;
+    }
+
+    private static TableInfo inferTable(SourceFile file) throws IOException {
+        try (BufferedReader reader = file.open()) {
             String headerLine = reader.readLine();
-            if (headerLine == null) return;
+            if (headerLine == null) return null;
 
             String[] headers = headerLine.split("\t");
-            if (headers.length < 2) return;
+            if (headers.length < 2) return null;
+            for (int i = 0; i < headers.length; i++) headers[i] = headers[i].trim();
 
-            log.info("Storing file: {}", file);
-            String tableName = buildTableName(rootDir, file);
-            createTable(conn, tableName, headers);
+            // A column is typed only when every non-empty value has the same numeric form, empty cells are stored as NULL
+            boolean[] integer = new boolean[headers.length];
+            boolean[] real = new boolean[headers.length];
+            boolean[] seen = new boolean[headers.length];
+            Arrays.fill(integer, true);
+            Arrays.fill(real, true);
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] values = line.split("\t", -1);
+                if (values.length != headers.length) continue;
+                for (int i = 0; i < values.length; i++) {
+                    String value = values[i];
+                    if (value.isEmpty() || !(integer[i] || real[i])) continue;
+                    seen[i] = true;
+                    if (integer[i] && !isInteger(value)) integer[i] = false;
+                    if (real[i] && !isReal(value)) real[i] = false;
+                }
+            }
+
+            ColumnType[] types = new ColumnType[headers.length];
+            for (int i = 0; i < headers.length; i++) {
+                if (!seen[i] || !(integer[i] || real[i])) types[i] = ColumnType.TEXT;
+                else types[i] = integer[i] ? ColumnType.INTEGER : ColumnType.REAL;
+            }
+            return new TableInfo(file.tableName, headers, types);
+        }
+    }
+
+    // Only canonical forms count, so storing the number never drops a leading zero or a '+'
+    private static boolean isInteger(String value) {
+        int start = value.charAt(0) == '-' ? 1 : 0;
+        int length = value.length() - start;
+        if (length == 0 || length > 18) return false;
+        if (value.charAt(start) == '0' && (length > 1 || start == 1)) return false;
+        for (int i = start; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
 
-            insertRows(conn, tableName, headers.length, reader);
+    // A plain integer would read back as "1.0" and a trailing zero would be dropped, so neither counts as a decimal
+    private static boolean isReal(String value) {
+        int start = value.charAt(0) == '-' ? 1 : 0;
+        int dot = value.indexOf('.');
+        if (dot < 0 || dot == start || value.length() - start > 16) return false;
+        if (value.charAt(value.length() - 1) == '0' || dot == value.length() - 1) return false;
+        if (value.charAt(start) == '0' && dot - start > 1) return false;
+        for (int i = start; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (i != dot && (c < '0' || c > '9')) return false;
         }
+        return true;
     }
 
-    private static void createTable(
+    private static void insertAll(
             Connection conn,
-            String tableName,
-            String[] headers)
-    throws SQLException {
-        log.info("Creating table: {}", tableName);
+            Map<SourceFile, TableInfo> tables,
+            ExecutorService executor,
+            int threads,
+            Set<String> failed
+    ) throws Exception {
+        if (tables.isEmpty()) return;
+
+        // Bounded so fast parsers cannot get more than a few batches ahead of the single writer
+        BlockingQueue<RowBatch> queue = new ArrayBlockingQueue<>(Math.max(4, threads * 4));
+        List<Future<?>> parsers = new ArrayList<>();
+        Map<String, PreparedStatement> statements = new HashMap<>();
+        Map<String, Integer> counts = new HashMap<>();
+        try {
+            for (Map.Entry<SourceFile, TableInfo> entry : tables.entrySet()) {
+                parsers.add(executor.submit(() -> {
+                    parseFile(entry.getKey(), entry.getValue(), queue);
+                    return null;
+                }));
+            }
+
+            int remaining = tables.size();
+            while (remaining > 0) {
+                RowBatch batch = queue.take();
+                if (batch.rows == null) {
+                    // Open statements slow every later batch down, so each one is closed once its file is done
+                    PreparedStatement done = statements.remove(batch.table.name);
+                    if (done != null) done.close();
+                    if (batch.failed) failed.add(batch.table.name);
+                    else log.info("Inserted {} rows into {}", counts.getOrDefault(batch.table.name, 0), batch.table.name);
+                    remaining--;
+                    continue;
+                }
+
+                PreparedStatement ps = statements.get(batch.table.name);
+                if (ps == null) {
+                    String placeholders = String.join(", ", Collections.nCopies(batch.table.types.length, "?"));
+                    ps = conn.prepareStatement("INSERT INTO \"" + batch.table.name + "\" VALUES (" + placeholders + ")");
+                    statements.put(batch.table.name, ps);
+                }
+                ColumnType[] types = batch.table.types;
+                for (String[] values : batch.rows) {
+                    for (int i = 0; i < values.length; i++) {
+                        String value = values[i];
+                        switch (types[i]) {
+                            case TEXT -> ps.setString(i + 1, value);
+                            case INTEGER -> {
+                                if (value.isEmpty()) ps.setNull(i + 1, Types.INTEGER);
+                                else ps.setLong(i + 1, Long.parseLong(value));
+                            }
+                            case REAL -> {
+                                if (value.isEmpty()) ps.setNull(i + 1, Types.REAL);
+                                else ps.setDouble(i + 1, Double.parseDouble(value));
+                            }
+                        }
+                    }
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                counts.merge(batch.table.name, batch.rows.size(), Integer::sum);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Indexing interrupted", e);
+        } finally {
+            for (Future<?> parser : parsers) parser.cancel(true);
+            for (PreparedStatement ps : statements.values()) ps.close();
+        }
+    }
+
+    // Always ends with an empty marker batch, even when the file fails part way through, and the marker says which
+    private static void parseFile(SourceFile file, TableInfo table, BlockingQueue<RowBatch> queue) throws InterruptedException {
+        int batchSize = 1000;
+        boolean failed = false;
+        try (BufferedReader reader = file.open()) {
+            reader.readLine();
+            log.info("Storing file: {}", file);
+
+            List<String[]> rows = new ArrayList<>(batchSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] values = line.split("\t", -1);
+                if (values.length != table.types.length) continue;
+                rows.add(values);
+                if (rows.size() == batchSize) {
+                    queue.put(new RowBatch(table, rows));
+                    rows = new ArrayList<>(batchSize);
+                }
+            }
+            if (!rows.isEmpty()) queue.put(new RowBatch(table, rows));
+        } catch (IOException e) {
+            log.warn("Skipping {}: {}", file, e.getMessage());
+            failed = true;
+        } finally {
+            queue.put(new RowBatch(table, null, failed));
+        }
+    }
+
+    private static String buildTableName(String relativePath) {
+        String name = relativePath
+                .replace("\\", "_")
+                .replace("/", "_")
+                .replaceAll("(?i)\\.txt$", "");
+
+        name = name.replaceAll("[^a-zA-Z0-9_]", "_");
+
+        return name;
+    }
+
+    private static void createTable(Connection conn, TableInfo table) throws SQLException {
+        log.info("Creating table: {}", table.name);
         StringBuilder sql = new StringBuilder();
         sql.append("CREATE TABLE IF NOT EXISTS \"")
-                .append(tableName)
+                .append(table.name)
                 .append("\" (");
 
-        for (int i = 0; i < headers.length; i++) {
+        for (int i = 0; i < table.headers.length; i++) {
             sql.append("\"")
-                    .append(headers[i].trim())
-                    .append("\" TEXT");
+                    .append(table.headers[i])
+                    .append("\" ")
+                    .append(table.types[i]);
 
-            if (i < headers.length - 1) {
+            if (i < table.headers.length - 1) {
                 sql.append(", ");
             }
         }
@@ -161,39 +807,80 @@ public class ExtractionUtil {
             stmt.execute(sql.toString());
         }
 
-        log.info("Table created: {}", tableName);
+        log.info("Table created: {}", table.name);
     }
 
-    private static void insertRows(
-            Connection conn,
-            String tableName,
-            int columnCount,
-            BufferedReader reader
-    ) throws SQLException, IOException {
-        String placeholders = String.join(", ", Collections.nCopies(columnCount, "?"));
-        String sql = "INSERT INTO \"" + tableName + "\" VALUES (" + placeholders + ")";
+    private static void createIndexes(Connection conn, TableInfo table, Set<String> lookupColumns) throws SQLException {
+        Set<String> indexed = new HashSet<>();
+        for (int i = 0; i < table.headers.length; i++) {
+            String column = table.headers[i];
+            if (i > 0 && !lookupColumns.contains(column.toLowerCase())) continue;
+            if (!indexed.add(column.toLowerCase())) continue;
+
+            String indexName = "idx_" + table.name + "_" + column.replaceAll("[^a-zA-Z0-9_]", "_");
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE INDEX IF NOT EXISTS \"" + indexName + "\" ON \""
+                        + table.name + "\" (\"" + column + "\");");
+            }
+        }
+    }
 
-        int batchSize = 1000;
-        int count = 0;
+    private enum ColumnType {
+        INTEGER, REAL, TEXT
+    }
 
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] values = line.split("\t", -1);
-                if (values.length != columnCount) continue;
-                for (int i = 0; i < columnCount; i++) {
-                    ps.setString(i + 1, values[i]);
-                }
-                ps.addBatch();
-                count++;
-                if (count % batchSize == 0) {
-                    ps.executeBatch();
-                }
-            }
+    // A text file to index, either below an extraction folder or held in memory
+    private static class SourceFile {
+        final String relativePath;
+        final String tableName;
+        final Path path;
+        final ExtractedFiles memory;
+        String hash;
+
+        SourceFile(String relativePath, Path path, ExtractedFiles memory) {
+            this.relativePath = relativePath;
+            this.tableName = buildTableName(relativePath);
+            this.path = path;
+            this.memory = memory;
+        }
+
+        // Malformed UTF-8 fails the same way in both cases, as Files.newBufferedReader does
+        BufferedReader open() throws IOException {
+            if (path != null) return Files.newBufferedReader(path, StandardCharsets.UTF_8);
+            return new BufferedReader(new InputStreamReader(memory.open(relativePath), StandardCharsets.UTF_8.newDecoder()));
+        }
+
+        @Override
+        public String toString() {
+            return path != null ? path.toString() : relativePath;
+        }
+    }
+
+    private static class TableInfo {
+        private final String name;
+        private final String[] headers;
+        private final ColumnType[] types;
 
-            ps.executeBatch();
+        private TableInfo(String name, String[] headers, ColumnType[] types) {
+            this.name = name;
+            this.headers = headers;
+            this.types = types;
         }
+    }
+
+    private static class RowBatch {
+        private final TableInfo table;
+        private final List<String[]> rows;
+        private final boolean failed;
 
-        log.info("Inserted {} rows into {}", count, tableName);
+        private RowBatch(TableInfo table, List<String[]> rows) {
+            this(table, rows, false);
+        }
+
+        private RowBatch(TableInfo table, List<String[]> rows, boolean failed) {
+            this.table = table;
+            this.rows = rows;
+            this.failed = failed;
+        }
     }
 }
@@ -0,0 +1,36 @@
+package com.ransom.d2r.util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+public class JsonUtil {
+    public static void writeString(Writer json, String value) throws IOException {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+
+        json.append('"');
+        for (int c = 0; c < value.length(); c++) {
+            char ch = value.charAt(c);
+            switch (ch) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                default -> {
+                    if (ch < 0x20) json.append(String.format("\\u%04x", (int) ch));
+                    else json.append(ch);
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    public static void writeArray(Writer json, String[] values) throws IOException {
+        json.append('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) json.append(',');
+            writeString(json, values[i]);
+        }
+        json.append(']');
+    }
+}
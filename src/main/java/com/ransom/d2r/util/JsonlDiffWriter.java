@@ -0,0 +1,106 @@
+package com.ransom.d2r.util;
+
+import com.ransom.d2r.objects.ComparisonListener;
+import com.ransom.d2r.objects.ParsedErrors;
+import com.ransom.d2r.objects.RowDiff;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+// One JSON object per line: file, category, and where relevant key, column, header, old and new values
+public class JsonlDiffWriter implements ComparisonListener, Closeable {
+    private final BufferedWriter out;
+
+    public JsonlDiffWriter(Path outputPath) throws IOException {
+        Files.createDirectories(outputPath.toAbsolutePath().getParent());
+        this.out = Files.newBufferedWriter(outputPath);
+    }
+
+    @Override
+    public void onFile(ParsedErrors parsedFile) throws IOException {
+        if (!parsedFile.exists) {
+            start(parsedFile, "missing_file");
+            end();
+            return;
+        }
+
+        for (String header : parsedFile.missingHeaders) {
+            start(parsedFile, "missing_header");
+            field("header", header);
+            end();
+        }
+
+        for (String header : parsedFile.unknownHeaders) {
+            start(parsedFile, "unknown_header");
+            field("header", header);
+            end();
+        }
+
+        for (Map.Entry<String, String> header : parsedFile.mismatchedHeaders.entrySet()) {
+            start(parsedFile, "mismatched_header");
+            field("column", parsedFile.extHeaders.indexOf(header.getKey()));
+            field("old", header.getKey());
+            field("new", header.getValue());
+            end();
+        }
+
+        for (String row : parsedFile.missingEntries) {
+            String[] cells = row.split("\t", -1);
+            start(parsedFile, "missing_entry");
+            field("key", cells[0]);
+            out.append(",\"old\":");
+            JsonUtil.writeArray(out, cells);
+            end();
+        }
+
+        for (RowDiff diff : parsedFile.mismatchedEntries) {
+            for (int i = 0; i < diff.columns.length; i++) {
+                int col = diff.columns[i];
+                start(parsedFile, "mismatched_cell");
+                field("key", diff.key);
+                field("column", col);
+                field("header", col < parsedFile.extHeaders.size() ? parsedFile.extHeaders.get(col) : null);
+                field("old", diff.extValues[i]);
+                field("new", diff.modValues[i]);
+                end();
+            }
+        }
+
+        for (String row : parsedFile.duplicateEntries) {
+            String[] cells = row.split("\t", -1);
+            start(parsedFile, "duplicate_entry");
+            field("key", cells[0]);
+            out.append(",\"new\":");
+            JsonUtil.writeArray(out, cells);
+            end();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void start(ParsedErrors parsedFile, String category) throws IOException {
+        out.append("{\"file\":");
+        JsonUtil.writeString(out, parsedFile.file);
+        out.append(",\"category\":\"").append(category).append('"');
+    }
+
+    private void field(String name, String value) throws IOException {
+        out.append(",\"").append(name).append("\":");
+        JsonUtil.writeString(out, value);
+    }
+
+    private void field(String name, int value) throws IOException {
+        out.append(",\"").append(name).append("\":").append(String.valueOf(value));
+    }
+
+    private void end() throws IOException {
+        out.append("}\n");
+    }
+}
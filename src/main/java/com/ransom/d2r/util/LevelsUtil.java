@@ -1,13 +1,16 @@
 package com.ransom.d2r.util;
 
-import com.ransom.d2r.objects.FileInfo;
 import com.ransom.d2r.objects.PortalDefinition;
+import com.ransom.d2r.objects.TsvCursor;
+import com.ransom.d2r.objects.TsvWriter;
 
 import java.io.IOException;
 import java.nio.file.*;
 import java.util.*;
 
 public class LevelsUtil {
+    public static final List<String> REQUIRED_FILES = List.of("data/global/excel/levels.txt");
+
     public static void generate(
             String extractedDir,
             String outputDir,
@@ -17,41 +20,41 @@ public class LevelsUtil {
         Path input = Paths.get(extractedDir, "levels.txt");
         Path output = Paths.get(outputDir, "levels.txt");
 
-        List<String[]> rows = ScannerUtil.scanFile(input);
-        String[] headers = rows.getFirst();
-        Map<String, Integer> colIndex = buildIndex(headers);
-
-        List<String[]> newRows = new ArrayList<>();
-
-        for (int i = 1; i < rows.size(); i++) {
-            String[] row = rows.get(i).clone();
-            multiplyDensity(row, colIndex, densityMultiplier);
-            newRows.add(row);
-        }
-
-        for (PortalDefinition portal : newPortals) {
-            String[] newRow = new String[headers.length];
-            Arrays.fill(newRow, "0");
-
-            newRow[colIndex.get("Name")] = portal.name;
-            newRow[colIndex.get("MonLvlEx")] = String.valueOf(portal.normalLevel);
-            newRow[colIndex.get("MonLvlEx(N)")] = String.valueOf(portal.nightmareLevel);
-            newRow[colIndex.get("MonLvlEx(H)")] = String.valueOf(portal.hellLevel);
-
-            int baseMonDen = portal.monDen >= 0 ? portal.monDen : 3;
-            int baseNumMon = portal.numMonsters >= 0 ? portal.numMonsters : 10;
-
-            setIfExists(newRow, colIndex, "MonDen", (int)Math.round(baseMonDen * densityMultiplier));
-            setIfExists(newRow, colIndex, "MonDen(N)", (int)Math.round(baseMonDen * densityMultiplier));
-            setIfExists(newRow, colIndex, "MonDen(H)", (int)Math.round(baseMonDen * densityMultiplier));
-            setIfExists(newRow, colIndex, "NumMon", baseNumMon);
-            setIfExists(newRow, colIndex, "NumMon(N)", baseNumMon);
-            setIfExists(newRow, colIndex, "NumMon(H)", baseNumMon);
-
-            newRows.add(newRow);
+        try (TsvCursor cursor = TsvCursor.open(input)) {
+            String[] headers = cursor.headers;
+            Map<String, Integer> colIndex = buildIndex(headers);
+
+            try (TsvWriter writer = TsvWriter.open(output, headers)) {
+                String[] row;
+                while ((row = cursor.next()) != null) {
+                    multiplyDensity(row, colIndex, densityMultiplier);
+                    writer.write(row);
+                }
+
+                for (PortalDefinition portal : newPortals) {
+                    String[] newRow = new String[headers.length];
+                    Arrays.fill(newRow, "0");
+
+                    newRow[colIndex.get("Name")] = portal.name;
+                    newRow[colIndex.get("MonLvlEx")] = String.valueOf(portal.normalLevel);
+                    newRow[colIndex.get("MonLvlEx(N)")] = String.valueOf(portal.nightmareLevel);
+                    newRow[colIndex.get("MonLvlEx(H)")] = String.valueOf(portal.hellLevel);
+
+                    int baseMonDen = portal.monDen >= 0 ? portal.monDen : 3;
+                    int baseNumMon = portal.numMonsters >= 0 ? portal.numMonsters : 10;
+
+                    setIfExists(newRow, colIndex, "MonDen", (int)Math.round(baseMonDen * densityMultiplier));
+                    setIfExists(newRow, colIndex, "MonDen(N)", (int)Math.round(baseMonDen * densityMultiplier));
+                    setIfExists(newRow, colIndex, "MonDen(H)", (int)Math.round(baseMonDen * densityMultiplier));
+                    setIfExists(newRow, colIndex, "NumMon", baseNumMon);
+                    setIfExists(newRow, colIndex, "NumMon(N)", baseNumMon);
+                    setIfExists(newRow, colIndex, "NumMon(H)", baseNumMon);
+
+                    writer.write(newRow);
+                }
+                writer.commit();
+            }
         }
-
-        WriteUtil.writeFile(output, new FileInfo(headers, newRows));
     }
 
     private static void multiplyDensity(String[] row, Map<String, Integer> idx, double multiplier) {
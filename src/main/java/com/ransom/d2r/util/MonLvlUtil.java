@@ -1,12 +1,14 @@
 package com.ransom.d2r.util;
 
-import com.ransom.d2r.objects.FileInfo;
+import com.ransom.d2r.objects.TsvCursor;
+import com.ransom.d2r.objects.TsvWriter;
 
 import java.io.IOException;
 import java.nio.file.*;
 import java.util.*;
 
 public class MonLvlUtil {
+    public static final List<String> REQUIRED_FILES = List.of("data/global/excel/monlvl.txt");
 
     public static final int MAX_LEVEL = 127;
     public static final int VANILLA_PRESERVE_UNTIL = 85;
@@ -28,57 +30,63 @@ public class MonLvlUtil {
         Path input = Paths.get(extractedDir, "monlvl.txt");
         Path output = Paths.get(outputDir, "monlvl.txt");
 
-        List<String[]> rows = ScannerUtil.scanFile(input);
-        String[] headers = rows.getFirst();
-
-        Map<String, Integer> colIndex = buildIndex(headers);
-
-        List<String[]> newRows = new ArrayList<>();
-
-        // Preserve vanilla 1–85 exactly
-        for (int i = 1; i < rows.size(); i++) {
-            int level = Integer.parseInt(rows.get(i)[0]);
-            if (level <= VANILLA_PRESERVE_UNTIL) {
-                newRows.add(rows.get(i));
+        try (TsvCursor cursor = TsvCursor.open(input)) {
+            String[] headers = cursor.headers;
+
+            Map<String, Integer> colIndex = buildIndex(headers);
+
+            try (TsvWriter writer = TsvWriter.open(output, headers)) {
+                // Preserve vanilla 1–85 exactly
+                String[] refRow = null;
+                String[] row;
+                while ((row = cursor.next()) != null) {
+                    if (cursor.rowIndex() == VANILLA_PRESERVE_UNTIL) refRow = row;
+                    int level = Integer.parseInt(row[0]);
+                    if (level <= VANILLA_PRESERVE_UNTIL) {
+                        writer.write(row);
+                    }
+                }
+
+                if (refRow == null) {
+                    throw new IllegalStateException("monlvl.txt has fewer than " + VANILLA_PRESERVE_UNTIL + " rows");
+                }
+
+                double refHP = Double.parseDouble(refRow[colIndex.get("HP")]);
+                double refDM = Double.parseDouble(refRow[colIndex.get("DM")]);
+                double refXP = Double.parseDouble(refRow[colIndex.get("XP")]);
+
+                for (int level = VANILLA_PRESERVE_UNTIL + 1; level <= MAX_LEVEL; level++) {
+
+                    String[] newRow = new String[headers.length];
+                    newRow[0] = String.valueOf(level);
+
+                    double hp = tapered(level, refHP, HP_K, HP_ALPHA);
+                    double dm = tapered(level, refDM, DM_K, DM_ALPHA);
+                    double xp = tapered(level, refXP, XP_K, XP_ALPHA);
+
+                    fillTriplet(newRow, colIndex, "HP", hp);
+                    fillTriplet(newRow, colIndex, "DM", dm);
+                    fillTriplet(newRow, colIndex, "XP", xp);
+
+                    // Keep AR & AC modest linear scaling
+                    double ar = level * 12;
+                    double ac = level * 10;
+
+                    fillTriplet(newRow, colIndex, "TH", ar);
+                    fillTriplet(newRow, colIndex, "AC", ac);
+
+                    // Per-level bonuses (gentle)
+                    fillTriplet(newRow, colIndex, "L-HP", hp * 0.03);
+                    fillTriplet(newRow, colIndex, "L-DM", dm * 0.025);
+                    fillTriplet(newRow, colIndex, "L-XP", xp * 0.02);
+                    fillTriplet(newRow, colIndex, "L-TH", ar * 0.02);
+                    fillTriplet(newRow, colIndex, "L-AC", ac * 0.02);
+
+                    writer.write(newRow);
+                }
+                writer.commit();
             }
         }
-
-        String[] refRow = rows.get(VANILLA_PRESERVE_UNTIL);
-        double refHP = Double.parseDouble(refRow[colIndex.get("HP")]);
-        double refDM = Double.parseDouble(refRow[colIndex.get("DM")]);
-        double refXP = Double.parseDouble(refRow[colIndex.get("XP")]);
-
-        for (int level = VANILLA_PRESERVE_UNTIL + 1; level <= MAX_LEVEL; level++) {
-
-            String[] newRow = new String[headers.length];
-            newRow[0] = String.valueOf(level);
-
-            double hp = tapered(level, refHP, HP_K, HP_ALPHA);
-            double dm = tapered(level, refDM, DM_K, DM_ALPHA);
-            double xp = tapered(level, refXP, XP_K, XP_ALPHA);
-
-            fillTriplet(newRow, colIndex, "HP", hp);
-            fillTriplet(newRow, colIndex, "DM", dm);
-            fillTriplet(newRow, colIndex, "XP", xp);
-
-            // Keep AR & AC modest linear scaling
-            double ar = level * 12;
-            double ac = level * 10;
-
-            fillTriplet(newRow, colIndex, "TH", ar);
-            fillTriplet(newRow, colIndex, "AC", ac);
-
-            // Per-level bonuses (gentle)
-            fillTriplet(newRow, colIndex, "L-HP", hp * 0.03);
-            fillTriplet(newRow, colIndex, "L-DM", dm * 0.025);
-            fillTriplet(newRow, colIndex, "L-XP", xp * 0.02);
-            fillTriplet(newRow, colIndex, "L-TH", ar * 0.02);
-            fillTriplet(newRow, colIndex, "L-AC", ac * 0.02);
-
-            newRows.add(newRow);
-        }
-
-        WriteUtil.writeFile(output, new FileInfo(headers, newRows));
     }
 
     private static double tapered(int level, double ref, double k, double alpha) {
@@ -0,0 +1,233 @@
+package com.ransom.d2r.util;
+
+import com.ransom.d2r.objects.ErrorCategory;
+import com.ransom.d2r.objects.ParsedErrors;
+import com.ransom.d2r.objects.ReportInfo;
+import com.ransom.d2r.objects.RowDiff;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+public class PagedReportUtil {
+    private static final int ROW_HEIGHT = 24;
+
+    // Writes a small index page plus one gzip shard per entry table in '<name>_data', loaded only when its file is expanded
+    public static void generate(List<ParsedErrors> parsedErrors, Path outputHtml) throws IOException {
+        String baseName = outputHtml.getFileName().toString().replaceAll("(?i)\\.html$", "");
+        String dataDirName = baseName + "_data";
+        Path dataDir = outputHtml.resolveSibling(dataDirName);
+        Files.createDirectories(dataDir);
+        try (Stream<Path> stale = Files.list(dataDir)) {
+            for (Path shard : stale.toList()) Files.deleteIfExists(shard);
+        }
+
+        try (BufferedWriter out = Files.newBufferedWriter(outputHtml)) {
+            writeHead(out, dataDirName);
+
+            out.append("<h1>").append(ReportInfo.TITLE).append("</h1>\n");
+            out.append("<p>").append(ReportInfo.SUBTITLE).append("</p>\n");
+            out.append("<p>").append(ReportInfo.DESCRIPTION.replace("\n", "<br>").replace("\t", "* ")).append("</p>\n");
+            out.append("<h2 style=\"margin-bottom: 0;\">").append(ReportInfo.RESULTS).append("</h2>\n");
+
+            int shardId = 0;
+            for (Map.Entry<ErrorCategory, List<ParsedErrors>> bucket : ReportUtil.bucket(parsedErrors).entrySet()) {
+                ErrorCategory category = bucket.getKey();
+                List<ParsedErrors> files = bucket.getValue();
+                if (files.isEmpty()) continue;
+
+                out.append("<details>\n");
+                out.append("<summary>").append(category.label).append(" (").append(String.valueOf(files.size())).append(")</summary>\n");
+
+                for (ParsedErrors e : files) {
+                    switch (category) {
+                        case MISSING_HEADERS, UNKNOWN_HEADERS, MISMATCHED_HEADERS -> {
+                            out.append("<details>\n");
+                            out.append("<summary>").append(escape(e.file)).append(" (").append(String.valueOf(category.size(e))).append(")</summary>\n");
+                            out.append("<ul>\n");
+                            if (category == ErrorCategory.MISMATCHED_HEADERS) {
+                                for (Map.Entry<String, String> entry : e.mismatchedHeaders.entrySet()) {
+                                    out.append("<li>Expected: ").append(escape(entry.getKey())).append(" | Found: ").append(escape(entry.getValue())).append("</li>\n");
+                                }
+                            } else {
+                                for (String h : category == ErrorCategory.MISSING_HEADERS ? e.missingHeaders : e.unknownHeaders) {
+                                    out.append("<li>").append(escape(h)).append("</li>\n");
+                                }
+                            }
+                            out.append("</ul>\n");
+                        }
+                        case MISSING_ENTRIES, MISMATCHED_ENTRIES, DUPLICATE_ENTRIES -> {
+                            writeShard(dataDir.resolve(shardId + ".js"), shardId, category, e);
+                            out.append("<details data-shard='").append(String.valueOf(shardId)).append("'>\n");
+                            out.append("<summary>").append(escape(e.file)).append(" (").append(String.valueOf(category.size(e))).append(")</summary>\n");
+                            out.append("<div class='table-container'>Loading...</div>\n");
+                            shardId++;
+                        }
+                    }
+                    out.append("</details>\n");
+                }
+
+                out.append("</details>\n");
+            }
+
+            out.append("</body>\n</html>");
+        }
+    }
+
+    // Shards are scripts rather than fetched files so the report also opens straight from disk (file://)
+    private static void writeShard(Path shardPath, int shardId, ErrorCategory category, ParsedErrors e) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (Writer json = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(compressed), StandardCharsets.UTF_8))) {
+            json.append("{\"paired\":").append(String.valueOf(category == ErrorCategory.MISMATCHED_ENTRIES));
+            json.append(",\"headers\":");
+            boolean first = true;
+            if (category == ErrorCategory.MISMATCHED_ENTRIES) {
+                // Only the key and the changed columns are shipped, unchanged cells stay blank in both rows
+                int[] columns = e.mismatchedColumns();
+                String[] headers = new String[columns.length];
+                for (int i = 0; i < columns.length; i++) {
+                    headers[i] = columns[i] < e.extHeaders.size() ? e.extHeaders.get(columns[i]) : "#" + columns[i];
+                }
+                JsonUtil.writeArray(json, headers);
+                json.append(",\"rows\":[");
+                for (RowDiff diff : e.mismatchedEntries) {
+                    String[] extRow = new String[columns.length];
+                    String[] modRow = new String[columns.length];
+                    extRow[0] = diff.key;
+                    modRow[0] = diff.key;
+                    for (int i = 1; i < columns.length; i++) {
+                        String extVal = diff.extValue(columns[i]);
+                        extRow[i] = extVal == null ? "" : extVal;
+                        String modVal = diff.modValue(columns[i]);
+                        modRow[i] = modVal == null ? "" : modVal;
+                    }
+                    if (!first) json.append(',');
+                    JsonUtil.writeArray(json, extRow);
+                    json.append(',');
+                    JsonUtil.writeArray(json, modRow);
+                    first = false;
+                }
+            } else {
+                JsonUtil.writeArray(json, e.extHeaders.toArray(new String[0]));
+                json.append(",\"rows\":[");
+                for (String row : category == ErrorCategory.MISSING_ENTRIES ? e.missingEntries : e.duplicateEntries) {
+                    if (!first) json.append(',');
+                    JsonUtil.writeArray(json, row.split("\t", -1));
+                    first = false;
+                }
+            }
+            json.append("]}");
+        }
+
+        try (BufferedWriter out = Files.newBufferedWriter(shardPath)) {
+            out.append("D2R_SHARD(").append(String.valueOf(shardId)).append(",\"");
+            out.append(Base64.getEncoder().encodeToString(compressed.toByteArray()));
+            out.append("\");\n");
+        }
+    }
+
+    private static void writeHead(Writer out, String dataDirName) throws IOException {
+        out.append("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n<meta charset=\"UTF-8\">\n");
+        out.append("<title>D2R Mod Diff Report</title>\n");
+
+        // ================= CSS =================
+        out.append("<style>\n");
+        out.append("body { font-family: Consolas, monospace; background:#1e1e1e; color:#ddd; padding:20px; margin:0; }\n");
+        out.append("details { margin-bottom:10px; }\n");
+        out.append("details details { margin-left: 20px; }\n");
+        out.append("summary { cursor:pointer; font-weight:bold; color:#6cf; }\n");
+        out.append(".table-container { height:300px; overflow:auto; border:1px solid #444; margin-top:5px; }\n");
+        out.append("table { border-collapse: collapse; width:max-content; min-width:100%; background:#222; }\n");
+        out.append("th, td { border:1px solid #444; padding:0 8px; text-align:left; white-space:nowrap; }\n");
+        out.append("th { background:#333; color:#ffa; position:sticky; top:0; }\n");
+        out.append("tbody tr { height:").append(String.valueOf(ROW_HEIGHT)).append("px; }\n");
+        out.append("tr.ext { background-color:#0a0; }\n");
+        out.append("tr.mod { background-color:#a00; }\n");
+        out.append("td.diff { background-color:yellow; color:black; }\n");
+        out.append("</style>\n");
+
+        // ================= JS =================
+        out.append("<script>\n");
+        out.append("const DATA_DIR = '").append(dataDirName).append("';\n");
+        out.append("const ROW_HEIGHT = ").append(String.valueOf(ROW_HEIGHT)).append(";\n");
+        out.append("const pending = {};\n");
+
+        // Shard loading
+        out.append("function D2R_SHARD(id, data) { pending[id](data); delete pending[id]; }\n");
+        out.append("function loadShard(id) {\n");
+        out.append("  return new Promise((resolve, reject) => {\n");
+        out.append("    pending[id] = resolve;\n");
+        out.append("    const s = document.createElement('script');\n");
+        out.append("    s.src = DATA_DIR + '/' + id + '.js';\n");
+        out.append("    s.onerror = reject;\n");
+        out.append("    document.head.appendChild(s);\n");
+        out.append("  }).then(async data => {\n");
+        out.append("    const bytes = Uint8Array.from(atob(data), c => c.charCodeAt(0));\n");
+        out.append("    const stream = new Blob([bytes]).stream().pipeThrough(new DecompressionStream('gzip'));\n");
+        out.append("    return JSON.parse(await new Response(stream).text());\n");
+        out.append("  });\n");
+        out.append("}\n");
+
+        // Virtualized rendering, only the rows in view (plus a margin) are in the DOM
+        out.append("function esc(s) { return s.replace(/&/g, '&amp;').replace(/</g, '&lt;').replace(/>/g, '&gt;'); }\n");
+        out.append("function rowHtml(data, i) {\n");
+        out.append("  const row = data.rows[i];\n");
+        out.append("  if (!data.paired) return '<tr>' + row.map(v => '<td>' + esc(v) + '</td>').join('') + '</tr>';\n");
+        out.append("  const other = data.rows[i ^ 1];\n");
+        out.append("  const cls = i % 2 === 0 ? 'ext' : 'mod';\n");
+        out.append("  return '<tr class=\"' + cls + '\">' + row.map((v, c) =>\n");
+        out.append("    (c < other.length && v !== other[c] ? '<td class=\"diff\">' : '<td>') + esc(v) + '</td>').join('') + '</tr>';\n");
+        out.append("}\n");
+        out.append("function renderVirtual(container, data) {\n");
+        out.append("  container.innerHTML = '<table><thead><tr>' + data.headers.map(h => '<th>' + esc(h) + '</th>').join('') + '</tr></thead><tbody></tbody></table>';\n");
+        out.append("  const tbody = container.querySelector('tbody');\n");
+        out.append("  let queued = false;\n");
+        out.append("  const draw = () => {\n");
+        out.append("    queued = false;\n");
+        out.append("    const total = data.rows.length;\n");
+        out.append("    let first = Math.max(0, Math.floor(container.scrollTop / ROW_HEIGHT) - 20);\n");
+        out.append("    if (data.paired) first -= first % 2;\n");
+        out.append("    const last = Math.min(total, first + Math.ceil(container.clientHeight / ROW_HEIGHT) + 40);\n");
+        out.append("    let html = '<tr style=\"height:' + first * ROW_HEIGHT + 'px\"></tr>';\n");
+        out.append("    for (let i = first; i < last; i++) html += rowHtml(data, i);\n");
+        out.append("    html += '<tr style=\"height:' + (total - last) * ROW_HEIGHT + 'px\"></tr>';\n");
+        out.append("    tbody.innerHTML = html;\n");
+        out.append("  };\n");
+        out.append("  container.addEventListener('scroll', () => { if (!queued) { queued = true; requestAnimationFrame(draw); } });\n");
+        out.append("  draw();\n");
+        out.append("}\n");
+
+        out.append("document.addEventListener('DOMContentLoaded', () => {\n");
+        out.append("  document.querySelectorAll('details[data-shard]').forEach(d => {\n");
+        out.append("    d.addEventListener('toggle', () => {\n");
+        out.append("      if (!d.open || d.dataset.loaded) return;\n");
+        out.append("      d.dataset.loaded = 'true';\n");
+        out.append("      const container = d.querySelector('.table-container');\n");
+        out.append("      loadShard(d.dataset.shard)\n");
+        out.append("        .then(data => renderVirtual(container, data))\n");
+        out.append("        .catch(() => { container.textContent = 'Unable to load ' + DATA_DIR + '/' + d.dataset.shard + '.js'; });\n");
+        out.append("    });\n");
+        out.append("  });\n");
+        out.append("});\n");
+        out.append("</script>\n");
+
+        out.append("</head>\n<body>\n");
+    }
+
+    private static String escape(String s) {
+        return s == null ? "" :
+                s.replace("&", "&amp;")
+                        .replace("<", "&lt;")
+                        .replace(">", "&gt;");
+    }
+}
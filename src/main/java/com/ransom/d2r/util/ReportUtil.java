@@ -1,12 +1,19 @@
 package com.ransom.d2r.util;
 
+import com.ransom.d2r.objects.ErrorCategory;
 import com.ransom.d2r.objects.ParsedErrors;
 import com.ransom.d2r.objects.ReportInfo;
 import com.ransom.d2r.objects.ReportType;
+import com.ransom.d2r.objects.RowDiff;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
@@ -17,19 +24,33 @@ public class ReportUtil {
             Path outputReport;
             if (reportType.equals(ReportType.TEXT)) {
                 outputReport = outputPath.resolve(fileName + ".txt");
-                StringBuilder sb = new StringBuilder();
-                sb.append(ReportInfo.TITLE);
-                sb.append("\n");
-                sb.append(ReportInfo.SUBTITLE);
-                sb.append("\n\n");
-                sb.append(ReportInfo.DESCRIPTION);
-                sb.append("\n\n");
-                sb.append(ReportInfo.RESULTS);
-                errors.forEach(sb::append);
-                WriteUtil.writeFile(outputReport, sb.toString());
+                Files.createDirectories(outputReport.getParent());
+                try (BufferedWriter out = Files.newBufferedWriter(outputReport)) {
+                    out.append(ReportInfo.TITLE);
+                    out.append("\n");
+                    out.append(ReportInfo.SUBTITLE);
+                    out.append("\n\n");
+                    out.append(ReportInfo.DESCRIPTION);
+                    out.append("\n\n");
+                    out.append(ReportInfo.RESULTS);
+                    for (ParsedErrors error : errors) {
+                        out.append(error.toString());
+                    }
+                }
             } else if (reportType.equals(ReportType.HTML)) {
                 outputReport = outputPath.resolve(fileName + ".html");
                 generate(errors, outputReport);
+            } else if (reportType.equals(ReportType.PAGED)) {
+                outputReport = outputPath.resolve(fileName + ".html");
+                Files.createDirectories(outputReport.getParent());
+                PagedReportUtil.generate(errors, outputReport);
+            } else if (reportType.equals(ReportType.JSONL)) {
+                outputReport = outputPath.resolve(fileName + ".jsonl");
+                try (JsonlDiffWriter writer = new JsonlDiffWriter(outputReport)) {
+                    for (ParsedErrors error : errors) {
+                        writer.onFile(error);
+                    }
+                }
             } else {
                 return "Error: Unknown report type";
             }
@@ -42,244 +63,228 @@ public class ReportUtil {
     }
 
     public static void generate(List<ParsedErrors> parsedErrors, Path outputHtml) throws IOException {
-        StringBuilder sb = new StringBuilder();
-        sb.append("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n<meta charset=\"UTF-8\">\n");
-        sb.append("<title>D2R Mod Diff Report</title>\n");
+        Files.createDirectories(outputHtml.getParent());
+        try (BufferedWriter out = Files.newBufferedWriter(outputHtml)) {
+            writeHtml(out, parsedErrors);
+        }
+    }
+
+    // Writes each category and table straight to the output so memory stays bounded regardless of report size
+    private static void writeHtml(Writer out, List<ParsedErrors> parsedErrors) throws IOException {
+        out.append("<!DOCTYPE html>\n<html lang=\"en\">\n<head>\n<meta charset=\"UTF-8\">\n");
+        out.append("<title>D2R Mod Diff Report</title>\n");
 
         // ================= CSS =================
-        sb.append("<style>\n");
-        sb.append("body { font-family: Consolas, monospace; background:#1e1e1e; color:#ddd; padding:20px; margin:0; }\n");
-        sb.append("details { margin-bottom:10px; }\n");
-        sb.append("details details { margin-left: 20px; }\n");
-        sb.append("details details details { margin-left: 40px; }\n");
-        sb.append("summary { cursor:pointer; font-weight:bold; color:#6cf; }\n");
+        out.append("<style>\n");
+        out.append("body { font-family: Consolas, monospace; background:#1e1e1e; color:#ddd; padding:20px; margin:0; }\n");
+        out.append("details { margin-bottom:10px; }\n");
+        out.append("details details { margin-left: 20px; }\n");
+        out.append("details details details { margin-left: 40px; }\n");
+        out.append("summary { cursor:pointer; font-weight:bold; color:#6cf; }\n");
 
         // Scrollable table
-        sb.append(".table-container { max-height:300px; overflow:auto; border:1px solid #444; margin-top:5px; }\n");
-        sb.append("table { border-collapse: collapse; width:max-content; min-width:100%; background:#222; }\n");
-        sb.append("th, td { border:1px solid #444; padding:4px 8px; text-align:left; white-space:nowrap; }\n");
-        sb.append("th { background:#333; color:#ffa; position:sticky; top:0; }\n");
+        out.append(".table-container { max-height:300px; overflow:auto; border:1px solid #444; margin-top:5px; }\n");
+        out.append("table { border-collapse: collapse; width:max-content; min-width:100%; background:#222; }\n");
+        out.append("th, td { border:1px solid #444; padding:4px 8px; text-align:left; white-space:nowrap; }\n");
+        out.append("th { background:#333; color:#ffa; position:sticky; top:0; }\n");
 
         // Loading bar
-        sb.append("#loading { position:fixed; top:0; left:0; width:100%; height:4px; background:#222; z-index:9999; }\n");
-        sb.append("#loading-bar { width:0%; height:100%; background:#6cf; animation: loadingAnim 1.5s linear infinite; }\n");
-        sb.append("@keyframes loadingAnim { 0%{width:0%} 50%{width:60%} 100%{width:100%} }\n");
+        out.append("#loading { position:fixed; top:0; left:0; width:100%; height:4px; background:#222; z-index:9999; }\n");
+        out.append("#loading-bar { width:0%; height:100%; background:#6cf; animation: loadingAnim 1.5s linear infinite; }\n");
+        out.append("@keyframes loadingAnim { 0%{width:0%} 50%{width:60%} 100%{width:100%} }\n");
 
         // Spinner
-        sb.append("#spinner-container { text-align:center; margin-top:40px; }\n");
-        sb.append(".spinner {\n");
-        sb.append("  border: 6px solid #333;\n");
-        sb.append("  border-top: 6px solid #6cf;\n");
-        sb.append("  border-radius: 50%;\n");
-        sb.append("  width: 50px;\n");
-        sb.append("  height: 50px;\n");
-        sb.append("  animation: spin 1s linear infinite;\n");
-        sb.append("  margin: auto;\n");
-        sb.append("}\n");
-        sb.append("@keyframes spin { 0% { transform: rotate(0deg); } 100% { transform: rotate(360deg); } }\n");
-
-        sb.append("#content { display:none; padding:20px; }\n");
-        sb.append(".lazy { display:none; }\n");
-        sb.append("</style>\n");
+        out.append("#spinner-container { text-align:center; margin-top:40px; }\n");
+        out.append(".spinner {\n");
+        out.append("  border: 6px solid #333;\n");
+        out.append("  border-top: 6px solid #6cf;\n");
+        out.append("  border-radius: 50%;\n");
+        out.append("  width: 50px;\n");
+        out.append("  height: 50px;\n");
+        out.append("  animation: spin 1s linear infinite;\n");
+        out.append("  margin: auto;\n");
+        out.append("}\n");
+        out.append("@keyframes spin { 0% { transform: rotate(0deg); } 100% { transform: rotate(360deg); } }\n");
+
+        out.append("#content { display:none; padding:20px; }\n");
+        out.append(".lazy { display:none; }\n");
+        out.append("</style>\n");
 
         // ================= JS =================
-        sb.append("<script>\n");
+        out.append("<script>\n");
 
         // Lazy loading
-        sb.append("document.addEventListener('DOMContentLoaded', () => {\n");
-        sb.append("  document.querySelectorAll('summary').forEach(s => {\n");
-        sb.append("    s.addEventListener('click', () => {\n");
-        sb.append("      const div = s.nextElementSibling;\n");
-        sb.append("      if(div && div.classList.contains('lazy')) {\n");
-        sb.append("         div.style.display='block';\n");
-        sb.append("         div.classList.remove('lazy');\n");
-        sb.append("      }\n");
-        sb.append("    });\n");
-        sb.append("  });\n");
-        sb.append("});\n");
+        out.append("document.addEventListener('DOMContentLoaded', () => {\n");
+        out.append("  document.querySelectorAll('summary').forEach(s => {\n");
+        out.append("    s.addEventListener('click', () => {\n");
+        out.append("      const div = s.nextElementSibling;\n");
+        out.append("      if(div && div.classList.contains('lazy')) {\n");
+        out.append("         div.style.display='block';\n");
+        out.append("         div.classList.remove('lazy');\n");
+        out.append("      }\n");
+        out.append("    });\n");
+        out.append("  });\n");
+        out.append("});\n");
 
         // Hide loader when fully loaded
-        sb.append("window.onload = function() {\n");
-        sb.append("  document.getElementById('loading').style.display='none';\n");
-        sb.append("  document.getElementById('spinner-container').style.display='none';\n");
-        sb.append("  document.getElementById('content').style.display='block';\n");
-        sb.append("};\n");
+        out.append("window.onload = function() {\n");
+        out.append("  document.getElementById('loading').style.display='none';\n");
+        out.append("  document.getElementById('spinner-container').style.display='none';\n");
+        out.append("  document.getElementById('content').style.display='block';\n");
+        out.append("};\n");
 
-        sb.append("</script>\n");
+        out.append("</script>\n");
 
-        sb.append("</head>\n<body>\n");
+        out.append("</head>\n<body>\n");
 
         // ================= LOADING BAR =================
-        sb.append("<div id='loading'><div id='loading-bar'></div></div>\n");
-
-        sb.append("<h1>");
-        sb.append(ReportInfo.TITLE);
-        sb.append("</h1>\n");
-        sb.append("<p>");
-        sb.append(ReportInfo.SUBTITLE);
-        sb.append("</p>\n");
-        sb.append("<p>");
-        sb.append(ReportInfo.DESCRIPTION.replace("\n", "<br>").replace("\t", "* "));
-        sb.append("</p>\n");
-        sb.append("<h2 style=\"margin-bottom: 0;\">");
-        sb.append(ReportInfo.RESULTS);
-        sb.append("</h2>");
-
-        sb.append("<div id='spinner-container'>\n");
-        sb.append("  <div class='spinner'></div>\n");
-        sb.append("  <div style='margin-top:10px; color:#aaa;'>Loading report...</div>\n");
-        sb.append("</div>\n");
+        out.append("<div id='loading'><div id='loading-bar'></div></div>\n");
+
+        out.append("<h1>");
+        out.append(ReportInfo.TITLE);
+        out.append("</h1>\n");
+        out.append("<p>");
+        out.append(ReportInfo.SUBTITLE);
+        out.append("</p>\n");
+        out.append("<p>");
+        out.append(ReportInfo.DESCRIPTION.replace("\n", "<br>").replace("\t", "* "));
+        out.append("</p>\n");
+        out.append("<h2 style=\"margin-bottom: 0;\">");
+        out.append(ReportInfo.RESULTS);
+        out.append("</h2>");
+
+        out.append("<div id='spinner-container'>\n");
+        out.append("  <div class='spinner'></div>\n");
+        out.append("  <div style='margin-top:10px; color:#aaa;'>Loading report...</div>\n");
+        out.append("</div>\n");
 
         // ================= CONTENT =================
-        sb.append("<div id='content'>\n");
-        String[] categories = {
-                "Missing Headers",
-                "Unknown Headers",
-                "Mismatched Headers",
-                "Missing Entries",
-                "Mismatched Entries"
-        };
-
-        for (String category : categories) {
-
-            long categoryCount = parsedErrors.stream().filter(e -> switch (category) {
-                case "Missing Headers" -> !e.missingHeaders.isEmpty();
-                case "Unknown Headers" -> !e.unknownHeaders.isEmpty();
-                case "Mismatched Headers" -> !e.mismatchedHeaders.isEmpty();
-                case "Missing Entries" -> !e.missingEntries.isEmpty();
-                case "Mismatched Entries" -> !e.mismatchedEntries.isEmpty();
-                default -> false;
-            }).count();
-
-            if (categoryCount == 0) continue;
-
-            sb.append("<details>\n");
-            sb.append("<summary>").append(category).append(" (").append(categoryCount).append(")</summary>\n");
-
-            for (ParsedErrors e : parsedErrors) {
-
-                List<?> items = switch (category) {
-                    case "Missing Headers" -> e.missingHeaders;
-                    case "Unknown Headers" -> e.unknownHeaders;
-                    case "Mismatched Headers" -> e.mismatchedHeaders.entrySet().stream().toList();
-                    case "Missing Entries" -> e.missingEntries;
-                    case "Mismatched Entries" -> e.mismatchedEntries.entrySet().stream().toList();
-                    default -> List.of();
-                };
-
-                if (items.isEmpty()) continue;
-
-                sb.append("<details>\n");
-                sb.append("<summary>").append(escape(e.file)).append(" (").append(items.size()).append(")</summary>\n");
+        out.append("<div id='content'>\n");
+        Map<ErrorCategory, List<ParsedErrors>> buckets = bucket(parsedErrors);
+        for (Map.Entry<ErrorCategory, List<ParsedErrors>> bucket : buckets.entrySet()) {
+            ErrorCategory category = bucket.getKey();
+            List<ParsedErrors> files = bucket.getValue();
+            if (files.isEmpty()) continue;
+
+            out.append("<details>\n");
+            out.append("<summary>").append(category.label).append(" (").append(String.valueOf(files.size())).append(")</summary>\n");
+
+            for (ParsedErrors e : files) {
+                out.append("<details>\n");
+                out.append("<summary>").append(escape(e.file)).append(" (").append(String.valueOf(category.size(e))).append(")</summary>\n");
 
                 switch (category) {
 
-                    case "Missing Headers":
-                    case "Unknown Headers":
-                        sb.append("<ul>\n");
-                        for (Object h : items) {
-                            sb.append("<li>").append(escape(h.toString())).append("</li>\n");
+                    case MISSING_HEADERS:
+                    case UNKNOWN_HEADERS:
+                        out.append("<ul>\n");
+                        for (String h : category == ErrorCategory.MISSING_HEADERS ? e.missingHeaders : e.unknownHeaders) {
+                            out.append("<li>").append(escape(h)).append("</li>\n");
                         }
-                        sb.append("</ul>\n");
+                        out.append("</ul>\n");
                         break;
 
-                    case "Mismatched Headers":
-                        sb.append("<ul>\n");
+                    case MISMATCHED_HEADERS:
+                        out.append("<ul>\n");
                         for (Map.Entry<String, String> entry : e.mismatchedHeaders.entrySet()) {
-                            sb.append("<li>Expected: ").append(escape(entry.getKey())).append(" | Found: ").append(escape(entry.getValue())).append("</li>\n");
+                            out.append("<li>Expected: ").append(escape(entry.getKey())).append(" | Found: ").append(escape(entry.getValue())).append("</li>\n");
                         }
-                        sb.append("</ul>\n");
+                        out.append("</ul>\n");
+                        break;
+
+                    case MISSING_ENTRIES:
+                        out.append("<div class='lazy'>\n");
+                        renderTable(out, e.extHeaders, e.missingEntries);
+                        out.append("</div>\n");
                         break;
 
-                    case "Missing Entries":
-                        sb.append("<div class='lazy'>\n");
-                        sb.append(renderTable(e.extHeaders, e.missingEntries));
-                        sb.append("</div>\n");
+                    case MISMATCHED_ENTRIES:
+                        out.append("<div class='lazy'>\n");
+                        renderMismatchedTable(out, e);
+                        out.append("</div>\n");
                         break;
 
-                    case "Mismatched Entries":
-                        sb.append("<div class='lazy'>\n");
-                        sb.append(renderMismatchedTable(e.extHeaders, e.mismatchedEntries));
-                        sb.append("</div>\n");
+                    case DUPLICATE_ENTRIES:
+                        out.append("<div class='lazy'>\n");
+                        renderTable(out, e.extHeaders, e.duplicateEntries);
+                        out.append("</div>\n");
                         break;
                 }
 
-                sb.append("</details>\n");
+                out.append("</details>\n");
             }
 
-            sb.append("</details>\n");
+            out.append("</details>\n");
         }
 
-        sb.append("</div>\n"); // end content
-        sb.append("</body>\n</html>");
+        out.append("</div>\n"); // end content
+        out.append("</body>\n</html>");
+    }
+
+    // One pass over the results, keeping file order within each category
+    public static Map<ErrorCategory, List<ParsedErrors>> bucket(List<ParsedErrors> parsedErrors) {
+        Map<ErrorCategory, List<ParsedErrors>> buckets = new EnumMap<>(ErrorCategory.class);
+        for (ErrorCategory category : ErrorCategory.values()) {
+            buckets.put(category, new ArrayList<>());
+        }
 
-        WriteUtil.writeFile(outputHtml, sb.toString());
+        for (ParsedErrors e : parsedErrors) {
+            for (ErrorCategory category : ErrorCategory.values()) {
+                if (category.size(e) > 0) buckets.get(category).add(e);
+            }
+        }
+        return buckets;
     }
 
-    private static String renderTable(List<String> headers, List<String> rows) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("<div class='table-container'>\n");
-        sb.append("<table>");
-        sb.append("<thead><tr>");
-        for (String h : headers) sb.append("<th>").append(escape(h)).append("</th>");
-        sb.append("</tr></thead><tbody>");
+    private static void renderTable(Writer out, List<String> headers, List<String> rows) throws IOException {
+        out.append("<div class='table-container'>\n");
+        out.append("<table>");
+        out.append("<thead><tr>");
+        for (String h : headers) out.append("<th>").append(escape(h)).append("</th>");
+        out.append("</tr></thead><tbody>");
 
         for (String row : rows) {
-            sb.append("<tr>");
+            out.append("<tr>");
             for (String col : row.split("\t", -1)) {
-                sb.append("<td>").append(escape(col)).append("</td>");
+                out.append("<td>").append(escape(col)).append("</td>");
             }
-            sb.append("</tr>");
+            out.append("</tr>");
         }
 
-        sb.append("</tbody></table>\n</div>\n");
-        return sb.toString();
+        out.append("</tbody></table>\n</div>\n");
     }
 
-    private static String renderMismatchedTable(List<String> headers,
-                                                java.util.LinkedHashMap<String, String> mismatchedRows) {
-
-        StringBuilder sb = new StringBuilder();
-        sb.append("<div class='table-container'>\n");
-        sb.append("<table>");
-        sb.append("<thead><tr>");
-        for (String h : headers) sb.append("<th>").append(escape(h)).append("</th>");
-        sb.append("</tr></thead><tbody>");
-
-        mismatchedRows.forEach((extRow, modRow) -> {
-
-            String[] extCols = extRow.split("\t", -1);
-            String[] modCols = modRow.split("\t", -1);
+    private static void renderMismatchedTable(Writer out, ParsedErrors e) throws IOException {
+        int[] columns = e.mismatchedColumns();
+        out.append("<div class='table-container'>\n");
+        out.append("<table>");
+        out.append("<thead><tr>");
+        for (int col : columns) {
+            out.append("<th>").append(escape(col < e.extHeaders.size() ? e.extHeaders.get(col) : "#" + col)).append("</th>");
+        }
+        out.append("</tr></thead><tbody>");
 
+        for (RowDiff diff : e.mismatchedEntries) {
             // Extracted (green)
-            sb.append("<tr style='background-color:#0a0;'>");
-            for (int i = 0; i < extCols.length; i++) {
-                String val = escape(extCols[i]);
-                boolean diff = i < modCols.length &&
-                        !extCols[i].equals(modCols[i]);
-                if (diff)
-                    sb.append("<td style='background-color:yellow; color:black;'>").append(val).append("</td>");
-                else
-                    sb.append("<td>").append(val).append("</td>");
-            }
-            sb.append("</tr>");
-
+            renderMismatchedRow(out, "#0a0", diff, columns, diff.extValues);
             // Mod (red)
-            sb.append("<tr style='background-color:#a00;'>");
-            for (int i = 0; i < modCols.length; i++) {
-                String val = escape(modCols[i]);
-                boolean diff = i < extCols.length &&
-                        !modCols[i].equals(extCols[i]);
-                if (diff)
-                    sb.append("<td style='background-color:yellow; color:black;'>").append(val).append("</td>");
-                else
-                    sb.append("<td>").append(val).append("</td>");
-            }
-            sb.append("</tr>");
-        });
+            renderMismatchedRow(out, "#a00", diff, columns, diff.modValues);
+        }
 
-        sb.append("</tbody></table>\n</div>\n");
-        return sb.toString();
+        out.append("</tbody></table>\n</div>\n");
+    }
+
+    private static void renderMismatchedRow(Writer out, String color, RowDiff diff, int[] columns, String[] values) throws IOException {
+        out.append("<tr style='background-color:").append(color).append(";'>");
+        out.append("<td>").append(escape(diff.key)).append("</td>");
+        for (int i = 1; i < columns.length; i++) {
+            int idx = java.util.Arrays.binarySearch(diff.columns, columns[i]);
+            if (idx >= 0)
+                out.append("<td style='background-color:yellow; color:black;'>").append(escape(values[idx])).append("</td>");
+            else
+                out.append("<td></td>");
+        }
+        out.append("</tr>");
     }
 
     private static String escape(String s) {
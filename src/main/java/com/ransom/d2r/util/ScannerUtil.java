@@ -1,30 +1,102 @@
 package com.ransom.d2r.util;
 
+import com.ransom.d2r.casc.CascStorage;
+import com.ransom.d2r.objects.ColumnarTable;
+import com.ransom.d2r.objects.ComparisonCache;
+import com.ransom.d2r.objects.ComparisonListener;
+import com.ransom.d2r.objects.ExtractedFiles;
+import com.ransom.d2r.objects.FileInfo;
+import com.ransom.d2r.objects.KeyedRows;
 import com.ransom.d2r.objects.ParsedErrors;
+import com.ransom.d2r.objects.ReferenceSnapshot;
+import com.ransom.d2r.objects.RowDiff;
+import com.ransom.d2r.objects.TsvBuffer;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class ScannerUtil {
     public static List<String[]> scanFile(Path path) throws IOException {
-        List<String[]> rows = new ArrayList<>();
-        try (BufferedReader br = Files.newBufferedReader(path)) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                rows.add(line.split("\t", -1));
-            }
+        return scanRows(TsvBuffer.read(path));
+    }
+
+    private static List<String[]> scanRows(TsvBuffer tsv) {
+        List<String[]> rows = new ArrayList<>(tsv.rowCount());
+        for (int i = 0; i < tsv.rowCount(); i++) {
+            rows.add(tsv.row(i));
         }
         return rows;
     }
 
+    public static FileInfo scanFileInfo(Path path) throws IOException {
+        return fileInfo(scanFile(path));
+    }
+
+    private static FileInfo fileInfo(List<String[]> rows) {
+        if (rows.isEmpty()) return new FileInfo(new String[0], List.of());
+        return new FileInfo(rows.getFirst(), rows.subList(1, rows.size()));
+    }
+
+    public static ColumnarTable scanTable(Path path) throws IOException {
+        return ColumnarTable.of(scanFileInfo(path));
+    }
+
+    // Each table is hashed from the same bytes it was parsed from, so cache keys match whatever was loaded
+    public static ReferenceSnapshot loadReferenceSnapshot(String refDir) throws IOException {
+        Path refPath = Paths.get(refDir);
+        Map<String, ColumnarTable> files = new HashMap<>();
+        Map<String, String> hashes = new HashMap<>();
+        for (String txtFile : scanTreeForTextFiles(refDir)) {
+            ByteBuffer contents = ByteBuffer.wrap(Files.readAllBytes(refPath.resolve(txtFile)));
+            files.put(txtFile, scanTable(contents));
+            hashes.put(txtFile, ComparisonCache.hash(contents));
+        }
+        return new ReferenceSnapshot(refDir, files, hashes);
+    }
+
+    // Parses the reference tables straight from the decoded CASC buffers, nothing is written to disk
+    public static ReferenceSnapshot loadReferenceSnapshot(CascStorage storage) throws IOException {
+        Map<String, ColumnarTable> files = new HashMap<>();
+        Map<String, String> hashes = new HashMap<>();
+        for (String name : ExtractionUtil.listGlobalTextFiles(storage)) {
+            ByteBuffer contents = storage.read(name);
+            files.put(ExtractionUtil.relativeName(name), scanTable(contents));
+            hashes.put(ExtractionUtil.relativeName(name), ComparisonCache.hash(contents));
+        }
+        return new ReferenceSnapshot(storage.getInstallDir().toString(), files, hashes);
+    }
+
+    public static ReferenceSnapshot loadReferenceSnapshot(ExtractedFiles extracted) {
+        Map<String, ColumnarTable> files = new HashMap<>();
+        Map<String, String> hashes = new HashMap<>();
+        for (String name : extracted.names()) {
+            if (!name.toLowerCase().endsWith(".txt")) continue;
+            ByteBuffer contents = extracted.get(name);
+            files.put(name, scanTable(contents));
+            hashes.put(name, ComparisonCache.hash(contents));
+        }
+        return new ReferenceSnapshot(extracted.rootDir, files, hashes);
+    }
+
+    private static ColumnarTable scanTable(ByteBuffer contents) {
+        return ColumnarTable.of(fileInfo(scanRows(TsvBuffer.wrap(contents))));
+    }
+
     public static List<String> scanTreeForTextFiles(String rootDir) throws IOException {
         Path rootPath = Paths.get(rootDir);
 
@@ -43,84 +115,361 @@ public class ScannerUtil {
     public static List<ParsedErrors> scanForComparisons(
             String refDir,
             String compDir
+    ) throws IOException {
+        return scanForComparisons(refDir, compDir, 1);
+    }
+
+    public static List<ParsedErrors> scanForComparisons(
+            String refDir,
+            String compDir,
+            int threads
+    ) throws IOException {
+        return scanForComparisons(refDir, compDir, threads, null);
+    }
+
+    public static List<ParsedErrors> scanForComparisons(
+            String refDir,
+            String compDir,
+            int threads,
+            ComparisonCache cache
+    ) throws IOException {
+        return scanForComparisons(refDir, compDir, threads, cache, null);
+    }
+
+    public static List<ParsedErrors> scanForComparisons(
+            String refDir,
+            String compDir,
+            int threads,
+            ComparisonCache cache,
+            ComparisonListener listener
     ) throws IOException {
         List<String> txtFiles = scanTreeForTextFiles(
                 compDir
         );
 
+        return scanForComparisons(compDir, txtFiles, threads, cache, listener, directoryLoader(Paths.get(refDir)));
+    }
+
+    // Compares only the given files, relative to both trees, for callers that already know what changed
+    public static List<ParsedErrors> scanForComparisons(
+            String refDir,
+            String compDir,
+            List<String> txtFiles,
+            int threads
+    ) throws IOException {
+        return scanForComparisons(compDir, txtFiles, threads, null, null, directoryLoader(Paths.get(refDir)));
+    }
+
+    public static List<ParsedErrors> scanForComparisons(
+            ReferenceSnapshot reference,
+            String compDir,
+            int threads
+    ) throws IOException {
+        return scanForComparisons(reference, compDir, threads, null);
+    }
+
+    public static List<ParsedErrors> scanForComparisons(
+            ReferenceSnapshot reference,
+            String compDir,
+            int threads,
+            ComparisonCache cache
+    ) throws IOException {
+        return scanForComparisons(reference, compDir, threads, cache, null);
+    }
+
+    public static List<ParsedErrors> scanForComparisons(
+            ReferenceSnapshot reference,
+            String compDir,
+            int threads,
+            ComparisonCache cache,
+            ComparisonListener listener
+    ) throws IOException {
+        List<String> txtFiles = scanTreeForTextFiles(
+                compDir
+        );
+
+        return scanForComparisons(compDir, txtFiles, threads, cache, listener, snapshotLoader(reference));
+    }
+
+    public static ParsedErrors scanForComparison(
+            ReferenceSnapshot reference,
+            String compDir,
+            String txtFile
+    ) throws IOException {
+        return compareFile(snapshotLoader(reference), Paths.get(compDir), txtFile);
+    }
+
+    private static List<ParsedErrors> scanForComparisons(
+            String compDir,
+            List<String> txtFiles,
+            int threads,
+            ComparisonCache cache,
+            ComparisonListener listener,
+            ReferenceLoader reference
+    ) throws IOException {
         List<ParsedErrors> parsedErrors = new ArrayList<>();
         Path modPath = Paths.get(compDir);
-        Path extractedPath = Paths.get(refDir);
-        for (String txtFile : txtFiles) {
-            Path modTarget = modPath.resolve(txtFile);
-            Path extTarget = extractedPath.resolve(txtFile);
-            if (!Files.exists(extTarget)) {
-                parsedErrors.add(new ParsedErrors(txtFile, false, null));
-                continue;
+        if (threads <= 1 || txtFiles.size() <= 1) {
+            for (String txtFile : txtFiles) {
+                ParsedErrors parsedFile = compareFile(reference, modPath, txtFile, cache);
+                if (listener != null) listener.onFile(parsedFile);
+                parsedErrors.add(parsedFile);
             }
-            List<String[]> modded = scanFile(modTarget);
-            List<String[]> extracted = scanFile(extTarget);
-            List<String> modHeaders = Arrays.asList(modded.getFirst());
-            List<String> extHeaders = Arrays.asList(extracted.getFirst());
-
-            ParsedErrors parsedFile = new ParsedErrors(txtFile, true, extHeaders);
-
-            boolean badHeaders = false;
-            for (String extHeader : extHeaders) {
-                if (!modHeaders.contains(extHeader)) {
-                    parsedFile.missingHeaders.add(extHeader);
-                    badHeaders = true;
-                }
+            if (cache != null) cache.prune();
+            return parsedErrors;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, txtFiles.size()));
+        try {
+            // Futures are collected in file order so the result order matches the sequential scan
+            List<Future<ParsedErrors>> futures = new ArrayList<>();
+            for (String txtFile : txtFiles) {
+                futures.add(executor.submit(() -> compareFile(reference, modPath, txtFile, cache)));
             }
 
-            for (String modHeader : modHeaders) {
-                if (!extHeaders.contains(modHeader)) {
-                    parsedFile.unknownHeaders.add(modHeader);
-                    badHeaders = true;
-                }
+            for (Future<ParsedErrors> future : futures) {
+                ParsedErrors parsedFile = future.get();
+                if (listener != null) listener.onFile(parsedFile);
+                parsedErrors.add(parsedFile);
             }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new RuntimeException("Comparison failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Comparison interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
 
-            if (!badHeaders) {
-                for (int i = 0; i < extHeaders.size(); i++) {
-                    String extHeader = extHeaders.get(i);
-                    String modHeader = modHeaders.get(i);
-                    if (!extHeader.equals(modHeader)) {
-                        parsedFile.mismatchedHeaders.put(extHeader, modHeader);
-                    }
-                }
+        if (cache != null) cache.prune();
+        return parsedErrors;
+    }
+
+    private static ParsedErrors compareFile(
+            ReferenceLoader reference,
+            Path modPath,
+            String txtFile,
+            ComparisonCache cache
+    ) throws IOException {
+        String extHash = cache == null ? null : reference.hash(txtFile, cache);
+        if (extHash == null) {
+            return compareFile(reference, modPath, txtFile);
+        }
+
+        String key = cache.key(txtFile, extHash, modPath.resolve(txtFile));
+        ParsedErrors cached = cache.get(key);
+        if (cached != null) return cached;
+
+        ParsedErrors parsedFile = compareFile(reference, modPath, txtFile);
+        cache.put(key, parsedFile);
+        return parsedFile;
+    }
+
+    private static ParsedErrors compareFile(ReferenceLoader reference, Path modPath, String txtFile) throws IOException {
+        FileInfo extracted = reference.load(txtFile);
+        if (extracted == null) {
+            return new ParsedErrors(txtFile, false, null);
+        }
+        FileInfo modded = scanFileInfo(modPath.resolve(txtFile));
+        List<String> modHeaders = Arrays.asList(modded.headers);
+        List<String> extHeaders = Arrays.asList(extracted.headers);
+
+        ParsedErrors parsedFile = new ParsedErrors(txtFile, true, extHeaders);
+
+        boolean badHeaders = false;
+        for (String extHeader : extHeaders) {
+            if (!modHeaders.contains(extHeader)) {
+                parsedFile.missingHeaders.add(extHeader);
+                badHeaders = true;
+            }
+        }
 
-                for (int i = 1; i < extracted.size(); i++) {
-                    String[] extRow = extracted.get(i);
-                    String key = extRow[0];
-                    boolean found = false;
-                    for (int ii = 1; ii < modded.size(); ii++) {
-                        String[] modRow = modded.get(ii);
-                        if (key.equals(modRow[0])) {
-                            found = true;
-                            for (int iii = 1; iii < modRow.length; iii++) {
-                                String extVal = extRow[iii];
-                                String modVal = modRow[iii];
-                                if (!extVal.equals(modVal)) {
-                                    parsedFile.mismatchedEntries.put(
-                                            String.join("\t", extRow),
-                                            String.join("\t", modRow)
-                                    );
-                                    break;
-                                }
-                            }
-                            break;
-                        }
-                    }
-
-                    if (!found) {
-                        parsedFile.missingEntries.add(String.join("\t", extRow));
-                    }
+        for (String modHeader : modHeaders) {
+            if (!extHeaders.contains(modHeader)) {
+                parsedFile.unknownHeaders.add(modHeader);
+                badHeaders = true;
+            }
+        }
+
+        if (!badHeaders) {
+            for (int i = 0; i < extHeaders.size(); i++) {
+                String extHeader = extHeaders.get(i);
+                String modHeader = modHeaders.get(i);
+                if (!extHeader.equals(modHeader)) {
+                    parsedFile.mismatchedHeaders.put(extHeader, modHeader);
                 }
             }
+        }
+
+        // Rows are still compared when columns were added, dropped or moved, as long as the key column survived
+        int[][] shared = alignHeaders(extracted.headers, modded.headers);
+        if (shared == null) return parsedFile;
+        int[] extColumns = shared[0];
+        int[] modColumns = shared[1];
+        int modKeyColumn = modColumns[0];
+        boolean positional = !badHeaders && parsedFile.mismatchedHeaders.isEmpty();
+
+        KeyedRows modRows = new KeyedRows(modded.rows, modKeyColumn, 0);
+        Map<String, Integer> extOccurrences = new HashMap<>();
+        for (String[] extRow : extracted.rows) {
+            String key = extRow[0];
+            int occurrence = extOccurrences.merge(key, 1, Integer::sum) - 1;
+            String[] modRow = modRows.get(key, occurrence);
+            if (modRow == null) {
+                parsedFile.missingEntries.add(String.join("\t", extRow));
+                continue;
+            }
 
-            parsedErrors.add(parsedFile);
+            RowDiff diff = positional
+                    ? diffRow(key, extRow, modRow)
+                    : diffRow(key, extRow, modRow, extColumns, modColumns);
+            if (diff != null) {
+                parsedFile.mismatchedEntries.add(diff);
+            }
         }
 
-        return parsedErrors;
+        // Mod rows whose key repeats more often than in the extracted file have no counterpart to pair with
+        Map<String, Integer> modOccurrences = new HashMap<>();
+        for (String[] modRow : modded.rows) {
+            String key = modKeyColumn < modRow.length ? modRow[modKeyColumn] : "";
+            int occurrence = modOccurrences.merge(key, 1, Integer::sum) - 1;
+            if (modRows.count(key) > 1 && occurrence >= extOccurrences.getOrDefault(key, 0)) {
+                String[] row = positional ? modRow : projectRow(modRow, extracted.headers.length, extColumns, modColumns);
+                parsedFile.duplicateEntries.add(String.join("\t", row));
+            }
+        }
+
+        return parsedFile;
+    }
+
+    // Lays a mod row out in extracted column order so it reads right under extHeaders, dropped columns stay empty
+    private static String[] projectRow(String[] modRow, int width, int[] extColumns, int[] modColumns) {
+        String[] row = new String[width];
+        Arrays.fill(row, "");
+        for (int i = 0; i < extColumns.length; i++) {
+            if (modColumns[i] < modRow.length) row[extColumns[i]] = modRow[modColumns[i]];
+        }
+        return row;
+    }
+
+    // Cells past the end of a short row compare as empty, nothing is allocated unless a cell differs
+    private static RowDiff diffRow(String key, String[] extRow, String[] modRow) {
+        int width = Math.max(extRow.length, modRow.length);
+        int[] columns = null;
+        int count = 0;
+        for (int col = 1; col < width; col++) {
+            String extVal = col < extRow.length ? extRow[col] : "";
+            String modVal = col < modRow.length ? modRow[col] : "";
+            if (extVal.equals(modVal)) continue;
+
+            if (columns == null) columns = new int[Math.min(8, width)];
+            else if (count == columns.length) columns = Arrays.copyOf(columns, Math.min(count * 2, width));
+            columns[count++] = col;
+        }
+        if (columns == null) return null;
+
+        columns = Arrays.copyOf(columns, count);
+        String[] extValues = new String[count];
+        String[] modValues = new String[count];
+        for (int i = 0; i < count; i++) {
+            int col = columns[i];
+            extValues[i] = col < extRow.length ? extRow[col] : "";
+            modValues[i] = col < modRow.length ? modRow[col] : "";
+        }
+        return new RowDiff(key, columns, extValues, modValues);
+    }
+
+    // Only the shared columns are visited, so the loop never has to test for a header the mod dropped
+    private static RowDiff diffRow(String key, String[] extRow, String[] modRow, int[] extColumns, int[] modColumns) {
+        int[] columns = null;
+        int count = 0;
+        for (int i = 1; i < extColumns.length; i++) {
+            int extCol = extColumns[i];
+            int modCol = modColumns[i];
+            String extVal = extCol < extRow.length ? extRow[extCol] : "";
+            String modVal = modCol < modRow.length ? modRow[modCol] : "";
+            if (extVal.equals(modVal)) continue;
+
+            if (columns == null) columns = new int[Math.min(8, extColumns.length)];
+            else if (count == columns.length) columns = Arrays.copyOf(columns, Math.min(count * 2, extColumns.length));
+            columns[count++] = i;
+        }
+        if (columns == null) return null;
+
+        String[] extValues = new String[count];
+        String[] modValues = new String[count];
+        for (int i = 0; i < count; i++) {
+            int extCol = extColumns[columns[i]];
+            int modCol = modColumns[columns[i]];
+            extValues[i] = extCol < extRow.length ? extRow[extCol] : "";
+            modValues[i] = modCol < modRow.length ? modRow[modCol] : "";
+            columns[i] = extCol;
+        }
+        return new RowDiff(key, Arrays.copyOf(columns, count), extValues, modValues);
+    }
+
+    // Pairs each extracted column with the mod column of the same name, repeated names pair by occurrence.
+    // Both arrays start with the key column and stay in extracted order, null when the mod has no key column.
+    private static int[][] alignHeaders(String[] extHeaders, String[] modHeaders) {
+        if (extHeaders.length == 0) return null;
+        Map<String, ArrayDeque<Integer>> modIndex = new HashMap<>();
+        for (int i = 0; i < modHeaders.length; i++) {
+            modIndex.computeIfAbsent(modHeaders[i], k -> new ArrayDeque<>(1)).add(i);
+        }
+
+        int[] extColumns = new int[extHeaders.length];
+        int[] modColumns = new int[extHeaders.length];
+        int count = 0;
+        for (int i = 0; i < extHeaders.length; i++) {
+            ArrayDeque<Integer> matches = modIndex.get(extHeaders[i]);
+            if (matches == null || matches.isEmpty()) {
+                if (i == 0) return null;
+                continue;
+            }
+            extColumns[count] = i;
+            modColumns[count] = matches.poll();
+            count++;
+        }
+        return new int[][]{Arrays.copyOf(extColumns, count), Arrays.copyOf(modColumns, count)};
+    }
+
+    private static ReferenceLoader directoryLoader(Path extractedPath) {
+        return new ReferenceLoader() {
+            @Override
+            public FileInfo load(String txtFile) throws IOException {
+                Path extTarget = extractedPath.resolve(txtFile);
+                return Files.exists(extTarget) ? scanFileInfo(extTarget) : null;
+            }
+
+            @Override
+            public String hash(String txtFile, ComparisonCache cache) throws IOException {
+                Path extTarget = extractedPath.resolve(txtFile);
+                return Files.exists(extTarget) ? cache.fileHash(extTarget) : null;
+            }
+        };
+    }
+
+    // Never reads below rootDir, which for storage or in-memory snapshots is an install folder or nothing at all
+    private static ReferenceLoader snapshotLoader(ReferenceSnapshot reference) {
+        return new ReferenceLoader() {
+            @Override
+            public FileInfo load(String txtFile) {
+                ColumnarTable table = reference.get(txtFile);
+                return table == null ? null : table.toFileInfo();
+            }
+
+            @Override
+            public String hash(String txtFile, ComparisonCache cache) {
+                return reference.hash(txtFile);
+            }
+        };
+    }
+
+    private interface ReferenceLoader {
+        FileInfo load(String txtFile) throws IOException;
+
+        // Content hash for the comparison cache key, null when the reference has no such file
+        String hash(String txtFile, ComparisonCache cache) throws IOException;
     }
 }
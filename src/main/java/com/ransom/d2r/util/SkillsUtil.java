@@ -1,14 +1,19 @@
 package com.ransom.d2r.util;
 
 import com.ransom.d2r.objects.SkillsData;
+import com.ransom.d2r.objects.TsvCursor;
+import com.ransom.d2r.objects.TsvWriter;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
 import java.util.List;
 
 public class SkillsUtil {
+    public static final List<String> REQUIRED_FILES = List.of("data/global/excel/skills.txt");
+
+    // Rows are streamed straight to the output file, the returned data only carries the headers and column indexes,
+    // its rows list is always empty
     public static SkillsData generate(
             String extractedDir,
             String outputDir,
@@ -17,42 +22,42 @@ public class SkillsUtil {
     ) throws IOException {
         Path extracted = Paths.get(extractedDir);
         Path output = Paths.get(outputDir);
-        SkillsData data = loadSkillData(extracted, requiredLevelOverride, maxLevelOverride);
-        WriteUtil.writeFile(output.resolve("skills.txt"), data);
-        return data;
+        return writeSkillData(extracted, output.resolve("skills.txt"), requiredLevelOverride, maxLevelOverride);
     }
 
-    private static SkillsData loadSkillData(Path extractedDir, int requiredLevelOverride, int maxLevelOverride) throws IOException {
+    private static SkillsData writeSkillData(Path extractedDir, Path outputPath, int requiredLevelOverride, int maxLevelOverride) throws IOException {
         Path expPath = extractedDir.resolve("skills.txt");
-        List<String[]> all = ScannerUtil.scanFile(expPath);
-        SkillsData data = new SkillsData(all.getFirst(), new ArrayList<>());
-
-        for (int i = 0; i < data.headers.length; i++) {
-            switch (data.headers[i]) {
-                case "reqlevel":
-                    data.reqLevelColumnIndex = i;
-                    break;
-                case "maxlvl":
-                    data.maxLevelColumnIndex = i;
-                    break;
+        try (TsvCursor cursor = TsvCursor.open(expPath);
+             TsvWriter writer = TsvWriter.open(outputPath, cursor.headers)) {
+            SkillsData data = new SkillsData(cursor.headers, List.of());
+
+            for (int i = 0; i < data.headers.length; i++) {
+                switch (data.headers[i]) {
+                    case "reqlevel":
+                        data.reqLevelColumnIndex = i;
+                        break;
+                    case "maxlvl":
+                        data.maxLevelColumnIndex = i;
+                        break;
+                }
             }
-        }
-
-        for (int i = 1; i < all.size(); i++) {
-            String[] row = all.get(i);
 
-            Object ref = row[data.reqLevelColumnIndex];
-            if (ref != null && !ref.equals("") && requiredLevelOverride > 0) {
-                row[data.reqLevelColumnIndex] = "" + requiredLevelOverride;
+            String[] row;
+            while ((row = cursor.next()) != null) {
+                Object ref = row[data.reqLevelColumnIndex];
+                if (ref != null && !ref.equals("") && requiredLevelOverride > 0) {
+                    row[data.reqLevelColumnIndex] = "" + requiredLevelOverride;
+                }
+
+                ref = row[data.maxLevelColumnIndex];
+                if (ref != null && !ref.equals("") && maxLevelOverride > 0) {
+                    row[data.maxLevelColumnIndex] = "" + maxLevelOverride;
+                }
+                writer.write(row);
             }
 
-            ref = row[data.maxLevelColumnIndex];
-            if (ref != null && !ref.equals("") && maxLevelOverride > 0) {
-                row[data.maxLevelColumnIndex] = "" + maxLevelOverride;
-            }
-            data.rows.add(row);
+            writer.commit();
+            return data;
         }
-
-        return data;
     }
 }
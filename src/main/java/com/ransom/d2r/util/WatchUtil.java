@@ -0,0 +1,163 @@
+package com.ransom.d2r.util;
+
+import com.ransom.d2r.objects.ParsedErrors;
+import com.ransom.d2r.objects.ReferenceSnapshot;
+import com.ransom.d2r.objects.ReportType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+public class WatchUtil {
+    private static final Logger log = LoggerFactory.getLogger(WatchUtil.class);
+
+    // Blocks until the thread is interrupted, rewriting the reports after every burst of changes to modDir
+    public static void watch(
+            ReferenceSnapshot reference,
+            String modDir,
+            String outputDir,
+            String reportName,
+            long debounceMillis
+    ) throws IOException {
+        Path modPath = Paths.get(modDir);
+        Map<String, ParsedErrors> results = new LinkedHashMap<>();
+        for (ParsedErrors parsedFile : ScannerUtil.scanForComparisons(reference, modDir, 1)) {
+            results.put(parsedFile.file, parsedFile);
+        }
+        writeReports(results, outputDir, reportName);
+
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            Map<WatchKey, Path> keys = new HashMap<>();
+            registerTree(watcher, keys, modPath);
+            log.info("Watching '{}' for changes", modPath);
+
+            Set<String> retry = new LinkedHashSet<>();
+            while (!Thread.currentThread().isInterrupted()) {
+                // Files that could not be read last time are retried after a quiet window, even without a new event
+                WatchKey key = retry.isEmpty() ? watcher.take() : watcher.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                Set<String> touched = new LinkedHashSet<>(retry);
+                retry.clear();
+                boolean overflow = key != null && drain(watcher, keys, key, modPath, touched);
+
+                // Keep collecting until the directory has been quiet for a full debounce window
+                while ((key = watcher.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= drain(watcher, keys, key, modPath, touched);
+                }
+
+                if (overflow) {
+                    log.info("Change events overflowed, rescanning '{}'", modPath);
+                    touched.addAll(results.keySet());
+                    touched.addAll(ScannerUtil.scanTreeForTextFiles(modDir));
+                }
+
+                if (touched.isEmpty()) continue;
+                if (refresh(reference, modDir, modPath, touched, results, retry)) {
+                    writeReports(results, outputDir, reportName);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean drain(
+            WatchService watcher,
+            Map<WatchKey, Path> keys,
+            WatchKey key,
+            Path modPath,
+            Set<String> touched
+    ) throws IOException {
+        boolean overflow = false;
+        Path dir = keys.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+
+            Path changed = dir.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(changed)) {
+                try {
+                    registerTree(watcher, keys, changed);
+                    try (Stream<Path> stream = Files.walk(changed)) {
+                        stream.filter(WatchUtil::isTextFile)
+                                .forEach(path -> touched.add(relativize(modPath, path)));
+                    }
+                } catch (IOException | UncheckedIOException e) {
+                    // Gone again already, its delete event follows
+                    log.warn("Unable to watch '{}': {}", changed, e.getMessage());
+                }
+            } else if (isTextFile(changed) || event.kind() == ENTRY_DELETE) {
+                touched.add(relativize(modPath, changed));
+            }
+        }
+
+        if (!key.reset()) keys.remove(key);
+        return overflow;
+    }
+
+    private static boolean refresh(
+            ReferenceSnapshot reference,
+            String modDir,
+            Path modPath,
+            Set<String> touched,
+            Map<String, ParsedErrors> results,
+            Set<String> retry
+    ) {
+        boolean changed = false;
+        for (String txtFile : touched) {
+            ParsedErrors previous = results.get(txtFile);
+            if (!Files.isRegularFile(modPath.resolve(txtFile))) {
+                // A deleted directory only reports itself, so drop every result underneath it
+                String prefix = txtFile + "/";
+                changed |= results.keySet().removeIf(file -> file.equals(txtFile) || file.startsWith(prefix));
+                continue;
+            }
+
+            ParsedErrors current;
+            try {
+                current = ScannerUtil.scanForComparison(reference, modDir, txtFile);
+            } catch (IOException | UncheckedIOException e) {
+                // Editors and mod managers hold files locked or half written while saving, keep the last result
+                log.warn("Unable to re-compare '{}', retrying: {}", txtFile, e.getMessage());
+                retry.add(txtFile);
+                continue;
+            }
+            results.put(txtFile, current);
+            if (previous == null || !previous.toString().equals(current.toString())) {
+                log.info("Re-compared '{}'", txtFile);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static void writeReports(Map<String, ParsedErrors> results, String outputDir, String reportName) {
+        List<ParsedErrors> errors = new ArrayList<>(results.values());
+        log.info(ReportUtil.generate(outputDir, errors, ReportType.HTML, reportName));
+        log.info(ReportUtil.generate(outputDir, errors, ReportType.TEXT, reportName));
+    }
+
+    private static void registerTree(WatchService watcher, Map<WatchKey, Path> keys, Path root) throws IOException {
+        try (Stream<Path> stream = Files.walk(root)) {
+            for (Path dir : stream.filter(Files::isDirectory).toList()) {
+                keys.put(dir.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+            }
+        }
+    }
+
+    private static boolean isTextFile(Path path) {
+        return Files.isRegularFile(path) && path.toString().toLowerCase().endsWith(".txt");
+    }
+
+    private static String relativize(Path root, Path path) {
+        return root.relativize(path).toString().replace("\\", "/");  // normalize for D2R
+    }
+}
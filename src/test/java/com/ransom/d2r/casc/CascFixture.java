@@ -0,0 +1,337 @@
+package com.ransom.d2r.casc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+
+// Writes the synthetic install under src/test/resources/casc/fixture, run main again after changing the layout.
+// Every BLTE form the decoder handles is used at least once: a headerless Z chunk, a chunk table mixing N and Z,
+// an F chunk wrapping another chunked container, and a file split over two spans.
+public class CascFixture {
+    public static final Path DEFAULT_DIR = Paths.get("src/test/resources/casc/fixture");
+
+    // Storage names as CascStorage lists them, the "data:" prefix comes from the nested vfs-1 manifest
+    public static final Map<String, byte[]> FILES = new LinkedHashMap<>();
+
+    static {
+        FILES.put("data:data/global/excel/armor.txt", table("name\tcode\tac", 3, i -> "Armor " + i + "\ta" + i + "\t" + (i * 4)));
+        FILES.put("data:data/global/excel/weapons.txt", table("name\tcode\tmindam\tmaxdam", 400,
+                i -> "Weapon " + i + "\tw" + i + "\t" + (i % 7) + "\t" + (i % 13 + 5)));
+        FILES.put("data:data/global/excel/misc.txt", table("name\tcode", 200, i -> "Misc " + i + "\tm" + i));
+        FILES.put("data:data/global/excel/skills.txt", table("skill\tId\treqlevel", 300, i -> "Skill" + i + "\t" + i + "\t" + (i % 99)));
+        FILES.put("data:data/global/excel/base/armor.txt", bytes("name\tcode\r\n"));
+        FILES.put("data:data/global/ui/panel.sprite", new byte[]{'S', 'p', 'A', '1', 0, 1, 2, 3});
+    }
+
+    private final ByteArrayOutputStream[] archives = {new ByteArrayOutputStream(), new ByteArrayOutputStream()};
+    private final TreeMap<String, long[]> index = new TreeMap<>();      // 9 byte ekey (hex) -> archive, offset, size
+    private final TreeMap<String, byte[][]> encoding = new TreeMap<>(); // ckey (hex) -> ckey, ekey, content size
+    private int stored;
+
+    public static void main(String[] args) throws IOException {
+        new CascFixture().write(args.length > 0 ? Paths.get(args[0]) : DEFAULT_DIR);
+    }
+
+    public void write(Path dir) throws IOException {
+        List<String> paths = new ArrayList<>();
+        List<byte[][]> spans = new ArrayList<>();
+        for (Map.Entry<String, byte[]> file : FILES.entrySet()) {
+            paths.add(file.getKey().substring("data:".length()));
+            spans.add(storeFile(file.getKey(), file.getValue()));
+        }
+        byte[] manifest = tvfs(paths, spans);
+        byte[] manifestEkey = store(single(manifest), manifest);
+        byte[] manifestCkey = md5(manifest);
+        byte[] root = tvfs(List.of("data"), List.<byte[][]>of(new byte[][]{manifestEkey}));
+        byte[] rootEkey = store(chunked(n(root)), root);
+        byte[] encodingFile = encodingFile();
+        byte[] encodingEkey = store(single(encodingFile), encodingFile);
+
+        Path data = dir.resolve("Data").resolve("data");
+        Files.createDirectories(data);
+        for (int i = 0; i < archives.length; i++) {
+            Files.write(data.resolve(String.format("data.%03d", i)), archives[i].toByteArray());
+        }
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(index.entrySet());
+        writeIndex(data.resolve("0000000002.idx"), entries.subList(0, entries.size() / 2), false);
+        writeIndex(data.resolve("0100000005.idx"), entries.subList(entries.size() / 2, entries.size()), false);
+        // An older generation of bucket 0 pointing at garbage, the loader has to skip it
+        writeIndex(data.resolve("0000000001.idx"), entries, true);
+
+        // vfs-1 only carries the content key, so opening the storage has to go through the encoding table
+        String buildKey = hex(md5(bytes("build")));
+        Path config = dir.resolve("Data").resolve("config").resolve(buildKey.substring(0, 2)).resolve(buildKey.substring(2, 4));
+        Files.createDirectories(config);
+        Files.writeString(config.resolve(buildKey), "# Build Configuration\n\n"
+                + "root = " + hex(md5(bytes("root"))) + "\n"
+                + "encoding = " + hex(md5(encodingFile)) + " " + hex(encodingEkey) + "\n"
+                + "vfs-root = " + hex(md5(root)) + " " + hex(rootEkey) + "\n"
+                + "vfs-1 = " + hex(manifestCkey) + "\n");
+        Files.writeString(dir.resolve(".build.info"), "Branch!STRING:0|Active!DEC:1|Build Key!HEX:16|CDN Key!HEX:16\n"
+                + "eu|0|" + hex(md5(bytes("old"))) + "|00\n"
+                + "us|1|" + buildKey + "|00\n");
+    }
+
+    private byte[][] storeFile(String name, byte[] contents) {
+        switch (name.substring(name.lastIndexOf('/') + 1)) {
+            case "weapons.txt" -> {
+                // 4000 byte chunks, alternating compressed and stored
+                List<byte[]> chunks = new ArrayList<>();
+                for (int pos = 0, i = 0; pos < contents.length; pos += 4000, i++) {
+                    byte[] part = slice(contents, pos, Math.min(contents.length, pos + 4000));
+                    chunks.add(i % 2 == 0 ? z(part) : n(part));
+                }
+                return new byte[][]{store(chunked(chunks.toArray(new byte[0][])), contents)};
+            }
+            case "misc.txt" -> {
+                int half = contents.length / 2;
+                byte[] head = slice(contents, 0, half);
+                byte[] nested = chunked(n(slice(head, 0, 100)), z(slice(head, 100, head.length)));
+                return new byte[][]{store(chunked(f(nested, head.length), n(slice(contents, half, contents.length))), contents)};
+            }
+            case "skills.txt" -> {
+                int half = contents.length / 2;
+                byte[] head = slice(contents, 0, half);
+                byte[] tail = slice(contents, half, contents.length);
+                return new byte[][]{store(chunked(z(head)), head), store(single(tail), tail)};
+            }
+            default -> {
+                return new byte[][]{store(single(contents), contents)};
+            }
+        }
+    }
+
+    // Appends a stored file behind its 30 byte archive header, alternating between data.000 and data.001
+    private byte[] store(byte[] blte, byte[] contents) {
+        byte[] ekey = md5(blte);
+        int archive = stored++ % archives.length;
+        ByteArrayOutputStream out = archives[archive];
+        long offset = out.size();
+        for (int i = ekey.length - 1; i >= 0; i--) out.write(ekey[i]);
+        out.writeBytes(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(blte.length + 30).array());
+        out.writeBytes(new byte[10]);
+        out.writeBytes(blte);
+        index.put(hex(slice(ekey, 0, 9)), new long[]{archive, offset, blte.length + 30});
+        byte[] ckey = md5(contents);
+        encoding.put(hex(ckey), new byte[][]{ckey, ekey, ByteBuffer.allocate(8).putLong(contents.length).array()});
+        return ekey;
+    }
+
+    private static byte[] single(byte[] contents) {
+        ByteBuffer out = ByteBuffer.allocate(8);
+        out.putInt(0x424C5445).putInt(0);
+        byte[] chunk = z(contents);
+        return concat(out.array(), slice(chunk, 4, chunk.length));
+    }
+
+    // Chunks come from n, z and f as their decoded size followed by the mode byte and body, the size goes into the table
+    private static byte[] chunked(byte[]... chunks) {
+        ByteBuffer header = ByteBuffer.allocate(12 + 24 * chunks.length);
+        header.putInt(0x424C5445).putInt(header.capacity());
+        header.putInt(0x0F000000 | chunks.length);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (byte[] chunk : chunks) {
+            int decodedSize = ByteBuffer.wrap(chunk).getInt();
+            byte[] encoded = slice(chunk, 4, chunk.length);
+            header.putInt(encoded.length).putInt(decodedSize).put(md5(encoded));
+            body.writeBytes(encoded);
+        }
+        return concat(header.array(), body.toByteArray());
+    }
+
+    private static byte[] n(byte[] contents) {
+        return chunk('N', contents, contents.length);
+    }
+
+    private static byte[] z(byte[] contents) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(contents);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        while (!deflater.finished()) out.write(buffer, 0, deflater.deflate(buffer));
+        deflater.end();
+        return chunk('Z', out.toByteArray(), contents.length);
+    }
+
+    private static byte[] f(byte[] blte, int decodedSize) {
+        return chunk('F', blte, decodedSize);
+    }
+
+    private static byte[] chunk(char mode, byte[] body, int decodedSize) {
+        return concat(ByteBuffer.allocate(5).putInt(decodedSize).put((byte) mode).array(), body);
+    }
+
+    private static byte[] tvfs(List<String> paths, List<byte[][]> spans) {
+        int spanCount = spans.stream().mapToInt(s -> s.length).sum();
+        int cftSize = spanCount * 29;
+        int width = cftSize > 0xFFFFFF ? 4 : cftSize > 0xFFFF ? 3 : cftSize > 0xFF ? 2 : 1;
+
+        ByteArrayOutputStream vfs = new ByteArrayOutputStream();
+        ByteArrayOutputStream cft = new ByteArrayOutputStream();
+        Map<String, Object> tree = new TreeMap<>();
+        for (int i = 0; i < paths.size(); i++) {
+            String[] parts = paths.get(i).split("/");
+            Map<String, Object> node = tree;
+            for (int p = 0; p < parts.length - 1; p++) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> child = (Map<String, Object>) node.computeIfAbsent(parts[p] + "/", k -> new TreeMap<>());
+                node = child;
+            }
+            node.put(parts[parts.length - 1], vfsEntry(vfs, cft, spans.get(i), width));
+        }
+        byte[] path = pathTable(tree, true);
+
+        ByteBuffer header = ByteBuffer.allocate(38);
+        header.putInt(0x54564653).put((byte) 1).put((byte) 38).put((byte) 9).put((byte) 9).putInt(1);
+        header.putInt(38).putInt(path.length);
+        header.putInt(38 + path.length).putInt(vfs.size());
+        header.putInt(38 + path.length + vfs.size()).putInt(cft.size());
+        header.putShort((short) 3);
+        return concat(header.array(), path, vfs.toByteArray(), cft.toByteArray());
+    }
+
+    private static int vfsEntry(ByteArrayOutputStream vfs, ByteArrayOutputStream cft, byte[][] spans, int width) {
+        int offset = vfs.size();
+        vfs.write(spans.length);
+        for (byte[] ekey : spans) {
+            int cftOffset = cft.size();
+            cft.writeBytes(slice(ekey, 0, 9));
+            cft.writeBytes(new byte[4]);
+            cft.writeBytes(md5(ekey));
+            vfs.writeBytes(new byte[8]);
+            for (int b = width - 1; b >= 0; b--) vfs.write(cftOffset >>> (b * 8));
+        }
+        return offset;
+    }
+
+    // Names longer than four bytes are split in two fragments so the shared fragment path is exercised too
+    private static byte[] pathTable(Map<String, Object> node, boolean top) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Map.Entry<String, Object> entry : node.entrySet()) {
+            if (!top) out.write(0);
+            if (entry.getValue() instanceof Map<?, ?> child) {
+                @SuppressWarnings("unchecked")
+                byte[] body = pathTable((Map<String, Object>) child, false);
+                fragment(out, bytes(entry.getKey().substring(0, entry.getKey().length() - 1)));
+                out.write(0xFF);
+                out.writeBytes(ByteBuffer.allocate(4).putInt(0x80000000 | (body.length + 4)).array());
+                out.writeBytes(body);
+            } else {
+                byte[] name = bytes(entry.getKey());
+                if (name.length > 4) {
+                    fragment(out, slice(name, 0, 3));
+                    fragment(out, slice(name, 3, name.length));
+                } else {
+                    fragment(out, name);
+                }
+                out.write(0xFF);
+                out.writeBytes(ByteBuffer.allocate(4).putInt((Integer) entry.getValue()).array());
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void fragment(ByteArrayOutputStream out, byte[] name) {
+        out.write(name.length);
+        out.writeBytes(name);
+    }
+
+    // One 4 KB page of 38 byte entries (key count, 40 bit size, ckey, ekey) per 107 files, behind a page index
+    private byte[] encodingFile() {
+        int perPage = 4096 / 38;
+        List<byte[]> pages = new ArrayList<>();
+        List<byte[][]> entries = new ArrayList<>(encoding.values());
+        for (int start = 0; start < entries.size(); start += perPage) {
+            ByteBuffer page = ByteBuffer.allocate(4096);
+            for (byte[][] entry : entries.subList(start, Math.min(entries.size(), start + perPage))) {
+                page.put((byte) 1).put(entry[2], 3, 5).put(entry[0]).put(entry[1]);
+            }
+            pages.add(page.array());
+        }
+
+        byte[] espec = {'z', 0};
+        ByteBuffer header = ByteBuffer.allocate(22);
+        header.put((byte) 'E').put((byte) 'N').put((byte) 1).put((byte) 16).put((byte) 16);
+        header.putShort((short) 4).putShort((short) 4).putInt(pages.size()).putInt(0).put((byte) 0).putInt(espec.length);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(header.array());
+        out.writeBytes(espec);
+        for (byte[] page : pages) {
+            out.writeBytes(slice(page, 6, 22));
+            out.writeBytes(md5(page));
+        }
+        for (byte[] page : pages) out.writeBytes(page);
+        return out.toByteArray();
+    }
+
+    private static void writeIndex(Path path, List<Map.Entry<String, long[]>> entries, boolean stale) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(16).putInt(0);
+        header.putShort((short) 7).put((byte) 0).put((byte) 0).put((byte) 4).put((byte) 5).put((byte) 9).put((byte) 30);
+        header.putLong(1L << 30);
+
+        ByteBuffer body = ByteBuffer.allocate(8 + entries.size() * 18).order(ByteOrder.LITTLE_ENDIAN);
+        body.putInt(entries.size() * 18).putInt(0);
+        for (Map.Entry<String, long[]> entry : entries) {
+            long[] location = stale ? new long[]{0, 0, 40} : entry.getValue();
+            body.put(HexFormat.of().parseHex(entry.getKey()));
+            long packed = (location[0] << 30) | location[1];
+            for (int b = 4; b >= 0; b--) body.put((byte) (packed >>> (b * 8)));
+            body.putInt((int) location[2]);
+        }
+        Files.write(path, concat(header.array(), body.array()));
+    }
+
+    private interface Row {
+        String get(int i);
+    }
+
+    private static byte[] table(String header, int rows, Row row) {
+        StringBuilder out = new StringBuilder(header).append("\r\n");
+        for (int i = 0; i < rows; i++) out.append(row.get(i)).append("\r\n");
+        return bytes(out.toString());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] slice(byte[] bytes, int from, int to) {
+        byte[] out = new byte[to - from];
+        System.arraycopy(bytes, from, out, 0, out.length);
+        return out;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) out.writeBytes(part);
+        return out.toByteArray();
+    }
+
+    private static byte[] md5(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        return HexFormat.of().formatHex(bytes);
+    }
+}
@@ -0,0 +1,54 @@
+package com.ransom.d2r.casc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Reads the committed fixture written by CascFixture, which stores each file in a different BLTE layout
+class CascStorageTest {
+
+    private static Path fixture() throws URISyntaxException {
+        return Paths.get(CascStorageTest.class.getResource("/casc/fixture/.build.info").toURI()).getParent();
+    }
+
+    @Test
+    void listsEveryFileInTheNestedManifest() throws Exception {
+        try (CascStorage storage = CascStorage.open(fixture())) {
+            assertEquals(CascFixture.FILES.keySet(), Set.copyOf(storage.list()));
+            assertTrue(storage.contains("data:data/global/excel/armor.txt"));
+            assertFalse(storage.contains("data/global/excel/armor.txt"));
+        }
+    }
+
+    @Test
+    void decodesNZAndFChunks() throws Exception {
+        try (CascStorage storage = CascStorage.open(fixture())) {
+            for (Map.Entry<String, byte[]> file : CascFixture.FILES.entrySet()) {
+                ByteBuffer contents = storage.read(file.getKey());
+                assertEquals(0, contents.position(), file.getKey());
+                byte[] actual = new byte[contents.remaining()];
+                contents.get(actual);
+                assertArrayEquals(file.getValue(), actual, file.getKey());
+            }
+        }
+    }
+
+    @Test
+    void rejectsUnknownNames() throws Exception {
+        try (CascStorage storage = CascStorage.open(fixture())) {
+            assertThrows(IOException.class, () -> storage.read("data:data/global/excel/missing.txt"));
+        }
+    }
+}